@@ -50,6 +50,7 @@ public class FunnyToolboxApplication {
         return args -> {
             log.info("🔌 Auto-loading plugins...");
             pluginManager.autoLoadPlugins();
+            pluginManager.logTimingReport();
         };
     }
 
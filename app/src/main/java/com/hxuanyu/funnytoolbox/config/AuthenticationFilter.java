@@ -7,13 +7,19 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 
 /**
  * 简易认证过滤器：
@@ -25,6 +31,7 @@ import java.nio.charset.StandardCharsets;
  *     - GET /api/platform/plugins/tags       获取所有标签
  *     - GET /api/platform/plugins/search/by-tag   按单个标签筛选
  *     - GET /api/platform/plugins/search/by-tags  按多个标签筛选
+ *     - GET /api/platform/metrics?format=prometheus  来自本机或携带抓取令牌（供 Prometheus 抓取）
  * - 其他插件提供的公开接口/资源不受影响。
  */
 @Component
@@ -33,6 +40,14 @@ public class AuthenticationFilter extends OncePerRequestFilter {
 
     public static final String SESSION_AUTH_KEY = "LOGINED";
 
+    private static final String PROMETHEUS_PATH = "/api/platform/metrics";
+
+    @Value("${platform.metrics.prometheus.allow-loopback:true}")
+    private boolean prometheusAllowLoopback;
+
+    @Value("${platform.metrics.prometheus.token:}")
+    private String prometheusToken;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     @Override
@@ -67,6 +82,13 @@ public class AuthenticationFilter extends OncePerRequestFilter {
                 return;
             }
 
+            // 放行：Prometheus 格式的指标抓取（本机或携带令牌）
+            if ("GET".equalsIgnoreCase(method) && PROMETHEUS_PATH.equals(path)
+                    && "prometheus".equals(request.getParameter("format")) && isPrometheusScrape(request)) {
+                filterChain.doFilter(request, response);
+                return;
+            }
+
             // 其他 /api/platform/** 需要登录
             HttpSession session = request.getSession(false);
             boolean logined = session != null && Boolean.TRUE.equals(session.getAttribute(SESSION_AUTH_KEY));
@@ -79,6 +101,29 @@ public class AuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * 指标抓取请求：携带正确的 Bearer 令牌，或来自本机且未经反向代理转发
+     */
+    private boolean isPrometheusScrape(HttpServletRequest request) {
+        if (StringUtils.hasText(prometheusToken)) {
+            String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+            if (authorization != null && authorization.startsWith("Bearer ")
+                    && MessageDigest.isEqual(authorization.substring(7).trim().getBytes(StandardCharsets.UTF_8),
+                    prometheusToken.getBytes(StandardCharsets.UTF_8))) {
+                return true;
+            }
+        }
+        if (!prometheusAllowLoopback || request.getHeader("X-Forwarded-For") != null
+                || request.getHeader(HttpHeaders.FORWARDED) != null) {
+            return false;
+        }
+        try {
+            return InetAddress.getByName(request.getRemoteAddr()).isLoopbackAddress();
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+
     private String getRequestPath(HttpServletRequest request) {
         String uri = request.getRequestURI();
         String ctx = request.getContextPath();
@@ -2,33 +2,56 @@ package com.hxuanyu.funnytoolbox.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.hxuanyu.funnytoolbox.common.Result;
+import com.hxuanyu.funnytoolbox.plugin.core.PluginBulkhead;
+import com.hxuanyu.funnytoolbox.plugin.core.PluginContext;
 import com.hxuanyu.funnytoolbox.plugin.core.PluginManager;
+import com.hxuanyu.funnytoolbox.plugin.core.PluginRateLimiter;
+import com.hxuanyu.funnytoolbox.plugin.core.PluginRateLimits;
+import com.hxuanyu.funnytoolbox.plugin.metrics.PluginMetrics;
+import com.hxuanyu.funnytoolbox.plugin.metrics.PluginMetricsInterceptor;
+import com.hxuanyu.funnytoolbox.plugin.metrics.RequestStats;
 import com.hxuanyu.funnytoolbox.plugin.model.PluginStatus;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.util.Optional;
 
 /**
  * 在插件被禁用时，拦截访问其后端 API 的请求，并返回明确提示信息。
+ * 插件声明了限流时，超出速率的请求返回 429 与 RateLimit-* / Retry-After 响应头；
+ * 插件声明了并发上限时，按插件舱壁限制同时处理的 API 请求数，超出（含排队超时）返回 503 与 Retry-After。
  *
  * 优化：不再拦截静态资源路径 /plugins/**。静态资源是否可访问由是否注册映射决定：
  *  - 启用时注册，禁用时注销；未注册将自然返回 404，无需过滤器额外拦截。
  */
 @Component
+@Order(20)
 public class PluginAccessFilter extends OncePerRequestFilter {
 
     @Autowired
     private PluginManager pluginManager;
 
+    @Autowired
+    private PluginMetrics pluginMetrics;
+
+    @Autowired
+    private PluginRateLimits rateLimits;
+
+    @Value("${platform.plugin.bulkhead.retry-after-seconds:1}")
+    private int retryAfterSeconds;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     @Override
@@ -38,26 +61,149 @@ public class PluginAccessFilter extends OncePerRequestFilter {
 
         String path = getRequestPath(request);
 
-        // 优先放行静态资源：/plugins/** 不做启用状态拦截（未注册时会返回 404）
+        // 优先放行静态资源：/plugins/** 不做启用状态拦截（未注册时会返回 404），仅计入在途请求
         if (path.startsWith("/plugins/")) {
-            filterChain.doFilter(request, response);
+            String pluginId = staticPluginId(path);
+            activateIfLazy(pluginId);
+            PluginContext context = pluginManager.enterRequest(pluginId);
+            try {
+                filterChain.doFilter(request, response);
+            } finally {
+                pluginManager.exitRequest(context);
+            }
             return;
         }
 
         // 仅对后端 API 前缀做拦截控制
-        Optional<String> resolved = pluginManager.resolvePluginIdByApiPath(path);
-        String pluginId = resolved.orElse(null);
+        String pluginId = pluginManager.findPluginIdByApiPath(path);
         if (pluginId != null && !pluginId.isEmpty()) {
-            Optional<PluginStatus> statusOpt = pluginManager.getPluginStatus(pluginId);
-            if (statusOpt.isEmpty() || statusOpt.get() != PluginStatus.ENABLED) {
+            // 懒加载插件在首次请求时激活；计入在途请求，蓝绿重载时据此排空旧版本
+            activateIfLazy(pluginId);
+            PluginContext context = pluginManager.enterRequest(pluginId);
+            if (context == null) {
                 writeDisabledResponse(response, pluginId);
                 return;
             }
+            PluginRateLimiter limiter = rateLimits.get(pluginId);
+            if (limiter != null) {
+                long waitNanos = limiter.tryAcquire(request);
+                if (waitNanos > 0) {
+                    pluginManager.exitRequest(context);
+                    writeRateLimitedResponse(response, pluginId, limiter, waitNanos);
+                    return;
+                }
+            }
+            PluginBulkhead bulkhead = pluginManager.getBulkhead(pluginId);
+            if (bulkhead != null && !bulkhead.tryAcquire()) {
+                pluginManager.exitRequest(context);
+                writeOverloadedResponse(response, pluginId);
+                return;
+            }
+            RequestStats stats = pluginMetrics.plugin(pluginId);
+            stats.enter();
+            long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                filterChain.doFilter(request, response);
+                failed = false;
+            } finally {
+                if (!failed && request.isAsyncStarted()) {
+                    // 异步处理（如虚拟线程模式的插件处理器）：异步请求完成时再归还许可、结束计数
+                    request.getAsyncContext().addListener(new CompletionListener(context, bulkhead, stats, start));
+                } else {
+                    finishRequest(request, response, context, bulkhead, stats, System.nanoTime() - start, failed);
+                }
+            }
+            return;
         }
 
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * 激活懒加载插件，失败时插件处于 ERROR 状态（PluginManager 已记录异常），由后续逻辑返回 423，
+     * 之后的请求不再触发激活
+     */
+    private void activateIfLazy(String pluginId) {
+        try {
+            pluginManager.ensureActivated(pluginId);
+        } catch (Exception e) {
+            logger.warn("Lazy plugin " + pluginId + " is unavailable: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 请求处理结束：归还舱壁许可、结束在途计数并记录指标
+     */
+    private void finishRequest(HttpServletRequest request, HttpServletResponse response, PluginContext context,
+                               PluginBulkhead bulkhead, RequestStats stats, long nanos, boolean failed) {
+        if (bulkhead != null) {
+            bulkhead.release();
+        }
+        pluginManager.exitRequest(context);
+        recordMetrics(request, response, stats, nanos, failed);
+    }
+
+    /**
+     * 记录插件与路由维度的请求指标（路由统计项由 PluginMetricsInterceptor 在映射完成后放入请求属性）
+     */
+    private void recordMetrics(HttpServletRequest request, HttpServletResponse response,
+                               RequestStats stats, long nanos, boolean failed) {
+        boolean error = failed || response.getStatus() >= 500;
+        stats.exit(nanos, error);
+        if (request.getAttribute(PluginMetricsInterceptor.ROUTE_STATS_ATTRIBUTE) instanceof RequestStats route) {
+            route.exit(nanos, error);
+        }
+    }
+
+    /**
+     * 从 /plugins/{pluginId}/** 中解析插件ID
+     */
+    private String staticPluginId(String path) {
+        String rest = path.substring("/plugins/".length());
+        int slash = rest.indexOf('/');
+        return slash < 0 ? rest : rest.substring(0, slash);
+    }
+
+    /**
+     * 异步请求完成监听：异步处理重新开始时（如返回值本身为异步类型）重新注册，完成时执行一次收尾
+     */
+    private class CompletionListener implements AsyncListener {
+        private final PluginContext context;
+        private final PluginBulkhead bulkhead;
+        private final RequestStats stats;
+        private final long start;
+        private boolean failed;
+
+        private CompletionListener(PluginContext context, PluginBulkhead bulkhead, RequestStats stats, long start) {
+            this.context = context;
+            this.bulkhead = bulkhead;
+            this.stats = stats;
+            this.start = start;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            finishRequest((HttpServletRequest) event.getSuppliedRequest(), (HttpServletResponse) event.getSuppliedResponse(),
+                    context, bulkhead, stats, System.nanoTime() - start, failed);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            failed = true;
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            failed = true;
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this, event.getSuppliedRequest(), event.getSuppliedResponse());
+        }
+    }
+
     private String getRequestPath(HttpServletRequest request) {
         String uri = request.getRequestURI();
         String ctx = request.getContextPath();
@@ -71,7 +217,33 @@ public class PluginAccessFilter extends OncePerRequestFilter {
         response.setStatus(423); // Locked，表示资源被锁定/不可用
         response.setCharacterEncoding(StandardCharsets.UTF_8.name());
         response.setContentType(MediaType.APPLICATION_JSON_VALUE);
-        Result<Void> body = Result.error(423, "插件[" + pluginId + "]已禁用或未安装，无法访问其接口或资源");
+        Result<Void> body = pluginManager.getPluginStatus(pluginId).orElse(null) == PluginStatus.ERROR
+                ? Result.error(423, "插件[" + pluginId + "]启动失败，需管理员重新启用或重载后才能访问")
+                : Result.error(423, "插件[" + pluginId + "]已禁用或未安装，无法访问其接口或资源");
+        response.getWriter().write(objectMapper.writeValueAsString(body));
+    }
+
+    private void writeRateLimitedResponse(HttpServletResponse response, String pluginId,
+                                          PluginRateLimiter limiter, long waitNanos) throws IOException {
+        long waitSeconds = Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L);
+        response.setStatus(429);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(waitSeconds));
+        response.setHeader("RateLimit-Limit", String.valueOf(limiter.getBurst()));
+        response.setHeader("RateLimit-Remaining", "0");
+        response.setHeader("RateLimit-Reset", String.valueOf(waitSeconds));
+        response.setHeader("RateLimit-Policy", limiter.getBurst() + ";w=" + limiter.getWindowSeconds());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        Result<Void> body = Result.error(429, "插件[" + pluginId + "]请求过于频繁，请稍后重试");
+        response.getWriter().write(objectMapper.writeValueAsString(body));
+    }
+
+    private void writeOverloadedResponse(HttpServletResponse response, String pluginId) throws IOException {
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        Result<Void> body = Result.error(503, "插件[" + pluginId + "]当前请求过多，请稍后重试");
         response.getWriter().write(objectMapper.writeValueAsString(body));
     }
 }
@@ -0,0 +1,52 @@
+package com.hxuanyu.funnytoolbox.config;
+
+import com.hxuanyu.funnytoolbox.plugin.registry.StaticResourceRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * 插件大文件与 Range 请求的直接输出：
+ * - 仅处理 GET/HEAD /plugins/** 中已建立索引的资源；
+ * - 大文件（不进入内存缓存）与带 Range 的请求由 sendfile / FileChannel.transferTo 输出，支持 206 与多段 Range；
+ * - 其余请求继续交给 /plugins/** 资源处理器。
+ * 位于 PluginAccessFilter 之后，懒加载激活与在途请求计数仍然生效。
+ */
+@Component
+@Order(30)
+public class PluginAssetTransferFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private StaticResourceRegistry staticResourceRegistry;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String method = request.getMethod();
+        return !("GET".equals(method) || "HEAD".equals(method)) || !getRequestPath(request).startsWith("/plugins/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        if (!staticResourceRegistry.serveDirect(getRequestPath(request), request, response)) {
+            filterChain.doFilter(request, response);
+        }
+    }
+
+    private String getRequestPath(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        String ctx = request.getContextPath();
+        if (ctx != null && !ctx.isEmpty() && uri.startsWith(ctx)) {
+            return uri.substring(ctx.length());
+        }
+        return uri;
+    }
+}
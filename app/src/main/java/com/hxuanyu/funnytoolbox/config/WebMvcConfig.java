@@ -1,21 +1,55 @@
 package com.hxuanyu.funnytoolbox.config;
 
+import com.hxuanyu.funnytoolbox.plugin.metrics.PluginMetricsInterceptor;
+import com.hxuanyu.funnytoolbox.plugin.registry.PluginDispatchHandlerMapping;
+import com.hxuanyu.funnytoolbox.plugin.registry.PluginHandlerExecutors;
+import com.hxuanyu.funnytoolbox.plugin.registry.PluginRequestCoalescer;
+import com.hxuanyu.funnytoolbox.plugin.registry.PluginRequestMappingHandlerAdapter;
+import com.hxuanyu.funnytoolbox.plugin.registry.PluginResponseCache;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcRegistrations;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.util.StringUtils;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
 import org.springframework.web.servlet.resource.PathResourceResolver;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Web MVC 配置
  */
 @Configuration
+@Slf4j
 public class WebMvcConfig implements WebMvcConfigurer {
 
+    private static final String STATIC_LOCATION = "classpath:/static/";
+    // 所有 classpath 根（应用自身与依赖 JAR）下的 static 目录，与按 STATIC_LOCATION 探测时的可见范围一致
+    private static final String STATIC_ROOTS = "classpath*:/static/";
+
+    @Autowired
+    private PluginMetricsInterceptor pluginMetricsInterceptor;
+
+    // 启动时构建的静态文件清单（相对路径 -> 资源，覆盖所有 static 根），构建失败时为 null，回退到逐次探测
+    private Map<String, Resource> staticManifest;
+
+    // 内存中的 SPA 入口页面
+    private Resource indexHtml;
+
     /**
      * 配置跨域
      */
@@ -30,6 +64,34 @@ public class WebMvcConfig implements WebMvcConfigurer {
     }
 
 
+    /**
+     * 替换 RequestMappingHandlerAdapter：启用虚拟线程模式的插件，其控制器方法在插件专属的虚拟线程上执行
+     */
+    @Bean
+    public WebMvcRegistrations pluginWebMvcRegistrations(PluginHandlerExecutors handlerExecutors,
+                                                          PluginResponseCache responseCache,
+                                                          PluginRequestCoalescer requestCoalescer) {
+        return new WebMvcRegistrations() {
+            @Override
+            public RequestMappingHandlerAdapter getRequestMappingHandlerAdapter() {
+                return new PluginRequestMappingHandlerAdapter(handlerExecutors, responseCache, requestCoalescer);
+            }
+        };
+    }
+
+    /**
+     * 插件请求分派映射：排在平台映射（order 0）之前，按 API 前缀把请求交给对应插件的路由表
+     * 插件路由指标拦截器只挂在该映射上：映射完成后按路径模式定位统计项
+     */
+    @Bean
+    public PluginDispatchHandlerMapping pluginDispatchHandlerMapping(
+            @Qualifier("requestMappingHandlerMapping") RequestMappingHandlerMapping platformMapping) {
+        PluginDispatchHandlerMapping mapping = new PluginDispatchHandlerMapping(platformMapping);
+        mapping.setOrder(-1);
+        mapping.setInterceptors(pluginMetricsInterceptor);
+        return mapping;
+    }
+
 //    @Override
 //    public void addResourceHandlers(ResourceHandlerRegistry registry) {
 //        // 平台自身的静态资源
@@ -43,7 +105,6 @@ public class WebMvcConfig implements WebMvcConfigurer {
      */
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
-
         // 1) Knife4j doc.html（位于 META-INF/resources/）
         registry.addResourceHandler("/doc.html")
                 .addResourceLocations("classpath:/META-INF/resources/")
@@ -55,7 +116,7 @@ public class WebMvcConfig implements WebMvcConfigurer {
 
 
         registry.addResourceHandler("/**")
-                .addResourceLocations("classpath:/static/")
+                .addResourceLocations(STATIC_LOCATION)
                 // 注意：在可执行 JAR 中，开启资源链有时会导致自定义 PathResourceResolver 的解析出现异常，
                 // 进而无法正确返回静态资源。这里关闭资源链以提升兼容性（IDE 与打包后行为一致）。
                 .resourceChain(false)
@@ -85,11 +146,18 @@ public class WebMvcConfig implements WebMvcConfigurer {
 
                     @Override
                     protected Resource getResource(String resourcePath, Resource location) throws IOException {
-                        Resource requestedResource = location.createRelative(resourcePath);
-
-                        // 真实存在的静态文件直接返回
-                        if (requestedResource.exists() && requestedResource.isReadable()) {
-                            return requestedResource;
+                        // 真实存在的静态文件直接返回：优先查启动时构建的清单，避免每次请求探测 classpath（可执行 JAR 内为嵌套 JAR 查找）
+                        Map<String, Resource> manifest = staticManifest;
+                        Resource listed = manifest != null ? manifest.get(resourcePath) : null;
+                        if (listed != null) {
+                            return listed;
+                        }
+                        // 无清单，或清单未命中但形如静态文件（如不含目录条目、未能列举的 JAR）时探测一次；SPA 路由不探测
+                        if (manifest == null || resourcePath.contains(".")) {
+                            Resource requestedResource = location.createRelative(resourcePath);
+                            if (requestedResource.exists() && requestedResource.isReadable()) {
+                                return requestedResource;
+                            }
                         }
 
                         // API 请求交给 Spring MVC（Controller）处理
@@ -103,8 +171,60 @@ public class WebMvcConfig implements WebMvcConfigurer {
                         }
 
                         // 其他路径兜底给 SPA 的 index.html
-                        return new ClassPathResource("/static/index.html");
+                        return indexHtml != null ? indexHtml : new ClassPathResource("/static/index.html");
                     }
                 });
     }
+
+    /**
+     * 启动时扫描一次所有 classpath 根下的 static 目录构建文件清单，并将 index.html 读入内存
+     * 同一路径在多个根中存在时取 classpath 顺序中的第一个，与按 STATIC_LOCATION 探测的结果一致。
+     */
+    @PostConstruct
+    void buildStaticManifest() {
+        try {
+            PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+            Map<String, Resource> manifest = new HashMap<>();
+            int roots = 0;
+            for (Resource root : resolver.getResources(STATIC_ROOTS)) {
+                String base = root.getURL().toString();
+                if (!base.endsWith("/")) {
+                    base = base + "/";
+                }
+                roots++;
+                for (Resource resource : resolver.getResources(base + "**")) {
+                    String url = resource.getURL().toString();
+                    if (!url.startsWith(base) || url.endsWith("/") || !resource.isReadable()) {
+                        continue;
+                    }
+                    // URL 为编码形式，请求路径为解码后的形式
+                    manifest.putIfAbsent(StringUtils.uriDecode(url.substring(base.length()), StandardCharsets.UTF_8), resource);
+                }
+            }
+
+            Resource index = manifest.get("index.html");
+            if (index != null) {
+                byte[] content = index.getContentAsByteArray();
+                long lastModified = index.lastModified();
+                indexHtml = new ByteArrayResource(content, "SPA index.html") {
+                    @Override
+                    public String getFilename() {
+                        return "index.html";
+                    }
+
+                    @Override
+                    public long lastModified() {
+                        return lastModified;
+                    }
+                };
+                manifest.put("index.html", indexHtml);
+            }
+            staticManifest = Map.copyOf(manifest);
+            log.info("Built static resource manifest: {} file(s) under {} static root(s)", manifest.size(), roots);
+        } catch (Exception e) {
+            log.warn("Failed to build static resource manifest, fallback to classpath probing: {}", e.getMessage());
+            staticManifest = null;
+            indexHtml = null;
+        }
+    }
 }
@@ -2,7 +2,14 @@ package com.hxuanyu.funnytoolbox.controller;
 
 import com.hxuanyu.funnytoolbox.common.Result;
 import com.hxuanyu.funnytoolbox.plugin.core.PluginManager;
+import com.hxuanyu.funnytoolbox.plugin.core.PluginPackageIndex;
+import com.hxuanyu.funnytoolbox.plugin.metrics.PluginMetrics;
+import com.hxuanyu.funnytoolbox.plugin.model.PluginBulkheadConfig;
 import com.hxuanyu.funnytoolbox.plugin.model.PluginDTO;
+import com.hxuanyu.funnytoolbox.plugin.model.PluginException;
+import com.hxuanyu.funnytoolbox.plugin.model.PluginPhaseTiming;
+import com.hxuanyu.funnytoolbox.plugin.model.PluginReloadMode;
+import com.hxuanyu.funnytoolbox.plugin.model.RequestMetrics;
 import com.hxuanyu.funnytoolbox.plugin.registry.MenuRegistry;
 import com.hxuanyu.funnytoolbox.plugin.model.pack.FrontendPluginPackMeta;
 import com.hxuanyu.funnytoolbox.plugin.model.pack.FrontendPluginPackResult;
@@ -63,6 +70,12 @@ public class PlatformController {
     @Autowired
     private MenuRegistry menuRegistry;
 
+    @Autowired
+    private PluginPackageIndex packageIndex;
+
+    @Autowired
+    private PluginMetrics pluginMetrics;
+
     @Value("${platform.plugin.dir:./plugins}")
     private String pluginDir;
 
@@ -271,21 +284,8 @@ public class PlatformController {
             // 4.1 同名文件
             if (Files.exists(targetPath)) {
                 try {
-                    // 尝试解析同名包的插件ID并卸载（兼容 JAR/ZIP）
-                    String existedId = null;
-                    if (targetPath.toString().toLowerCase().endsWith(".jar")) {
-                        existedId = pluginManager.resolvePluginIdFromJar(targetPath.toFile());
-                    } else if (targetPath.toString().toLowerCase().endsWith(".zip")) {
-                        try (java.util.zip.ZipFile zip = new java.util.zip.ZipFile(targetPath.toFile())) {
-                            java.util.zip.ZipEntry entry = zip.getEntry("META-INF/plugin.yml");
-                            if (entry != null) {
-                                try (InputStream is = zip.getInputStream(entry)) {
-                                    com.hxuanyu.funnytoolbox.plugin.model.PluginDescriptor desc = com.hxuanyu.funnytoolbox.plugin.model.PluginDescriptor.load(is);
-                                    existedId = desc.getId();
-                                }
-                            }
-                        }
-                    }
+                    // 从包索引获取同名包的插件ID并卸载（兼容 JAR/ZIP）
+                    String existedId = packageIndex.describe(targetPath.toFile()).getPluginId();
                     try {
                         if (!isBlank(existedId)) {
                             pluginManager.unloadPlugin(existedId);
@@ -299,6 +299,7 @@ public class PlatformController {
 
                 // 卸载后删除（带重试，避免短暂占用）
                 if (deleteWithRetry(targetPath.toFile(), 5, 300)) {
+                    packageIndex.remove(targetPath);
                     log.info("Deleted existing plugin file with same name: {}", targetPath);
                 } else {
                     return Result.error("删除已存在的同名插件文件失败，请稍后重试");
@@ -324,6 +325,7 @@ public class PlatformController {
                         File existedJar = new File(existedJarPath);
                         if (!existedJar.toPath().equals(targetPath)) {
                             if (deleteWithRetry(existedJar, 5, 300)) {
+                                packageIndex.remove(existedJar.toPath());
                                 log.info("Deleted existing plugin JAR of same ID ({}): {}", newPluginId, existedJarPath);
                             } else {
                                 return Result.error("删除已有相同插件ID的旧版本失败，请稍后重试");
@@ -334,6 +336,7 @@ public class PlatformController {
                         File existedZip = new File(existedZipPath);
                         if (!existedZip.toPath().equals(targetPath)) {
                             if (deleteWithRetry(existedZip, 5, 300)) {
+                                packageIndex.remove(existedZip.toPath());
                                 log.info("Deleted existing plugin ZIP of same ID ({}): {}", newPluginId, existedZipPath);
                             } else {
                                 return Result.error("删除已有相同插件ID的旧版本失败，请稍后重试");
@@ -877,7 +880,7 @@ public class PlatformController {
     public Result<Void> uninstallPlugin(
             @Parameter(name = "id", description = "插件ID") @PathVariable("id") String id) {
         try {
-            // 1. 查找插件 JAR（通过读取每个 JAR 的 plugin.yml 比对 ID）
+            // 1. 查找插件 JAR（基于包索引按 ID 定位）
             String jarPath = pluginManager.tryFindPluginJar(id);
 
             // 2. 卸载插件
@@ -887,6 +890,7 @@ public class PlatformController {
             if (jarPath != null) {
                 File jarFile = new File(jarPath);
                 if (deleteWithRetry(jarFile, 6, 300)) {
+                    packageIndex.remove(jarFile.toPath());
                     log.info("Plugin JAR deleted: {}", jarPath);
                 } else {
                     return Result.error("删除插件文件失败，可能仍被占用，请稍后重试");
@@ -941,16 +945,22 @@ public class PlatformController {
     /**
      * 重新加载插件
      */
-    @Operation(summary = "重新加载插件", description = "根据ID先卸载后加载，刷新插件状态")
+    @Operation(summary = "重新加载插件", description = "根据ID重新加载插件：restart 模式先卸载后加载；blue-green 模式新旧版本并存启动后无缝切换")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "重载成功"),
             @ApiResponse(responseCode = "500", description = "重载失败")
     })
     @PostMapping("/plugins/{id}/reload")
     public Result<Void> reloadPlugin(
-            @Parameter(name = "id", description = "插件ID") @PathVariable("id") String id) {
+            @Parameter(name = "id", description = "插件ID") @PathVariable("id") String id,
+            @Parameter(name = "mode", description = "重载模式：restart 或 blue-green，缺省使用 platform.plugin.reload.mode")
+            @RequestParam(value = "mode", required = false) String mode) {
         try {
-            pluginManager.reloadPlugin(id);
+            if (isBlank(mode)) {
+                pluginManager.reloadPlugin(id);
+            } else {
+                pluginManager.reloadPlugin(id, PluginReloadMode.parse(mode));
+            }
             return Result.success(null, "插件已重新加载");
         } catch (Exception e) {
             log.error("Failed to reload plugin: {}", id, e);
@@ -958,5 +968,76 @@ public class PlatformController {
         }
     }
 
+    /**
+     * 获取插件生命周期各阶段耗时
+     */
+    @Operation(summary = "插件生命周期耗时", description = "返回插件加载、启用、禁用、卸载、重载各阶段的耗时统计（重载后保留历史数据）")
+    @GetMapping("/plugins/{id}/timings")
+    public Result<List<PluginPhaseTiming>> getPluginTimings(
+            @Parameter(name = "id", description = "插件ID") @PathVariable("id") String id) {
+        try {
+            return Result.success(pluginManager.getPluginTimings(id));
+        } catch (PluginException e) {
+            return Result.error(404, e.getMessage());
+        }
+    }
+
+    /**
+     * 设置插件并发隔离
+     */
+    @Operation(summary = "设置插件并发隔离", description = "覆盖 plugin.yml api 中的 maxConcurrentRequests / queueSize / queueTimeoutMs，"
+            + "字段为空时沿用 plugin.yml 的声明，maxConcurrentRequests <= 0 表示不限制；立即生效并持久化")
+    @PutMapping("/plugins/{id}/bulkhead")
+    public Result<Void> setPluginBulkhead(
+            @Parameter(name = "id", description = "插件ID") @PathVariable("id") String id,
+            @RequestBody PluginBulkheadConfig config) {
+        try {
+            pluginManager.setBulkheadOverride(id, config);
+            return Result.success(null, "并发隔离配置已更新");
+        } catch (PluginException e) {
+            return Result.error(404, e.getMessage());
+        } catch (Exception e) {
+            log.error("Failed to update bulkhead of plugin: {}", id, e);
+            return Result.error("更新失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 清除插件并发隔离覆盖配置
+     */
+    @Operation(summary = "清除插件并发隔离覆盖", description = "删除管理端覆盖值，恢复 plugin.yml 中的声明")
+    @DeleteMapping("/plugins/{id}/bulkhead")
+    public Result<Void> clearPluginBulkhead(
+            @Parameter(name = "id", description = "插件ID") @PathVariable("id") String id) {
+        try {
+            pluginManager.setBulkheadOverride(id, null);
+            return Result.success(null, "已恢复插件声明的并发隔离配置");
+        } catch (PluginException e) {
+            return Result.error(404, e.getMessage());
+        }
+    }
+
+    /**
+     * 获取插件请求指标
+     */
+    @Operation(summary = "插件请求指标", description = "返回各插件及其路由的请求数、错误数、在途请求数与延迟分位数（p50/p90/p99）；"
+            + "format=prometheus 时以 Prometheus 文本格式返回")
+    @GetMapping("/metrics")
+    public Result<List<RequestMetrics>> getMetrics() {
+        return Result.success(pluginMetrics.snapshot());
+    }
+
+    /**
+     * 以 Prometheus 文本格式获取插件请求指标
+     */
+    @Operation(summary = "插件请求指标（Prometheus）", description = "Prometheus 文本格式（0.0.4），包含计数器、在途请求数、延迟直方图与估算分位数；"
+            + "来自本机或携带 platform.metrics.prometheus.token 令牌（Bearer）时无需登录")
+    @GetMapping(value = "/metrics", params = "format=prometheus")
+    public ResponseEntity<String> getPrometheusMetrics() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("text/plain; version=0.0.4; charset=utf-8"))
+                .body(pluginMetrics.toPrometheus());
+    }
+
     // 说明：不再从文件名中提取插件ID，统一由 PluginManager 读取 JAR 内的 plugin.yml 确定插件ID
 }
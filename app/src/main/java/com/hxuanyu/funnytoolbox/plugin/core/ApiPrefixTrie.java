@@ -0,0 +1,150 @@
+package com.hxuanyu.funnytoolbox.plugin.core;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 插件 API 前缀基数树（不可变）
+ * 由插件ID -> API 前缀构建，前缀按整段匹配（请求路径等于前缀或以 "前缀/" 开头），多个前缀命中时取最长者。
+ * 匹配过程只做字符比较与二分查找，不分配对象；前缀变化时整体重建并替换快照。
+ */
+public final class ApiPrefixTrie {
+
+    public static final ApiPrefixTrie EMPTY = new ApiPrefixTrie(new Node(""));
+
+    private final Node root;
+
+    private static final class Node {
+        // 从父节点到本节点的边标签
+        private String label;
+        // 子节点按边标签首字符排序
+        private char[] firstChars = new char[0];
+        private Node[] children = new Node[0];
+        // 前缀在此结束时对应的插件ID
+        private String pluginId;
+
+        private Node(String label) {
+            this.label = label;
+        }
+
+        private int indexOf(char c) {
+            return Arrays.binarySearch(firstChars, c);
+        }
+
+        private void addChild(Node child) {
+            int i = -(indexOf(child.label.charAt(0)) + 1);
+            char[] chars = new char[firstChars.length + 1];
+            Node[] nodes = new Node[children.length + 1];
+            System.arraycopy(firstChars, 0, chars, 0, i);
+            System.arraycopy(children, 0, nodes, 0, i);
+            chars[i] = child.label.charAt(0);
+            nodes[i] = child;
+            System.arraycopy(firstChars, i, chars, i + 1, firstChars.length - i);
+            System.arraycopy(children, i, nodes, i + 1, children.length - i);
+            firstChars = chars;
+            children = nodes;
+        }
+    }
+
+    private ApiPrefixTrie(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * 构建前缀树；同一前缀被多个插件声明时保留插件ID字典序靠前者，并记录冲突
+     *
+     * @param prefixes 插件ID -> API 前缀
+     * @param conflicts 冲突描述输出，可为 null
+     */
+    public static ApiPrefixTrie build(Map<String, String> prefixes, List<String> conflicts) {
+        Node root = new Node("");
+        for (Map.Entry<String, String> e : new TreeMap<>(prefixes).entrySet()) {
+            String key = normalize(e.getValue());
+            Node node = insert(root, key);
+            if (node.pluginId != null) {
+                if (conflicts != null) {
+                    conflicts.add("/" + key + " (" + node.pluginId + ", " + e.getKey() + ")");
+                }
+                continue;
+            }
+            node.pluginId = e.getKey();
+        }
+        return new ApiPrefixTrie(root);
+    }
+
+    /**
+     * 规范化前缀：去掉首尾斜杠（匹配时请求路径的首个 "/" 单独跳过）
+     */
+    static String normalize(String prefix) {
+        int start = 0;
+        int end = prefix.length();
+        while (start < end && prefix.charAt(start) == '/') start++;
+        while (end > start && prefix.charAt(end - 1) == '/') end--;
+        return prefix.substring(start, end);
+    }
+
+    private static Node insert(Node root, String key) {
+        Node node = root;
+        int pos = 0;
+        while (pos < key.length()) {
+            int i = node.indexOf(key.charAt(pos));
+            if (i < 0) {
+                Node leaf = new Node(key.substring(pos));
+                node.addChild(leaf);
+                return leaf;
+            }
+            Node child = node.children[i];
+            String label = child.label;
+            int common = 0;
+            while (common < label.length() && pos + common < key.length()
+                    && label.charAt(common) == key.charAt(pos + common)) {
+                common++;
+            }
+            if (common < label.length()) {
+                // 拆分边：child 变为 split 的子节点
+                Node split = new Node(label.substring(0, common));
+                child.label = label.substring(common);
+                split.addChild(child);
+                node.children[i] = split;
+                child = split;
+            }
+            node = child;
+            pos += common;
+        }
+        return node;
+    }
+
+    /**
+     * 查找请求路径所属插件，未命中返回 null
+     */
+    public String match(String path) {
+        if (path == null) {
+            return null;
+        }
+        int length = path.length();
+        int pos = length > 0 && path.charAt(0) == '/' ? 1 : 0;
+        Node node = root;
+        String matched = null;
+        while (true) {
+            if (node.pluginId != null && (pos == length || path.charAt(pos) == '/')) {
+                matched = node.pluginId;
+            }
+            if (pos >= length) {
+                return matched;
+            }
+            int i = node.indexOf(path.charAt(pos));
+            if (i < 0) {
+                return matched;
+            }
+            Node child = node.children[i];
+            String label = child.label;
+            if (!path.regionMatches(pos, label, 0, label.length())) {
+                return matched;
+            }
+            pos += label.length();
+            node = child;
+        }
+    }
+}
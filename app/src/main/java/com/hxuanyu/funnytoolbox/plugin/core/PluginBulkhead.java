@@ -0,0 +1,92 @@
+package com.hxuanyu.funnytoolbox.plugin.core;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 插件并发隔离（舱壁）
+ * 限制单个插件同时占用的请求线程数，避免一个插件的慢下游耗尽容器线程池、拖垮平台与其它插件。
+ * 许可用尽时最多 queueSize 个请求等待 queueTimeoutMs，其余请求立即拒绝；等待不保证严格先进先出。
+ * 配置不可变，配置变化时整体替换，已获得许可的请求归还到其获取时的实例。
+ */
+public class PluginBulkhead {
+
+    private final int maxConcurrentRequests;
+    private final int queueSize;
+    private final long queueTimeoutMs;
+
+    private final Semaphore permits;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder rejected;
+
+    /**
+     * @param previous 被替换的旧实例（沿用其拒绝计数），可为 null
+     */
+    PluginBulkhead(int maxConcurrentRequests, int queueSize, long queueTimeoutMs, PluginBulkhead previous) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.queueSize = Math.max(0, queueSize);
+        this.queueTimeoutMs = Math.max(0, queueTimeoutMs);
+        this.permits = new Semaphore(maxConcurrentRequests);
+        this.rejected = previous != null ? previous.rejected : new LongAdder();
+    }
+
+    /**
+     * 获取许可，必要时排队等待；返回 false 表示请求应被拒绝
+     */
+    public boolean tryAcquire() {
+        if (permits.tryAcquire()) {
+            return true;
+        }
+        if (queueSize == 0 || queueTimeoutMs == 0) {
+            rejected.increment();
+            return false;
+        }
+        if (queued.incrementAndGet() > queueSize) {
+            queued.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+        try {
+            if (permits.tryAcquire(queueTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            queued.decrementAndGet();
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * 归还许可（与成功的 {@link #tryAcquire()} 成对调用）
+     */
+    public void release() {
+        permits.release();
+    }
+
+    boolean sameConfig(int maxConcurrentRequests, int queueSize, long queueTimeoutMs) {
+        return this.maxConcurrentRequests == maxConcurrentRequests
+                && this.queueSize == Math.max(0, queueSize)
+                && this.queueTimeoutMs == Math.max(0, queueTimeoutMs);
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    public int getQueuedRequests() {
+        return queued.get();
+    }
+
+    public long getRejectedRequests() {
+        return rejected.sum();
+    }
+}
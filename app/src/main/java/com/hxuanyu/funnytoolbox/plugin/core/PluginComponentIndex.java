@@ -0,0 +1,197 @@
+package com.hxuanyu.funnytoolbox.plugin.core;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.core.type.filter.TypeFilter;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * 插件组件索引
+ * 记录插件包中需要注册为 Bean 的组件类，加载插件时直接 register 这些类，免去每次加载/重载时对插件 JAR 的类路径扫描。
+ * 索引来源（按优先级）：
+ * 1. 按包内容哈希缓存的索引文件 data/component-index/{hash}.idx；
+ * 2. 插件包自带的 META-INF/spring.components（spring-context-indexer 生成）；
+ * 3. 首次加载时扫描一次并生成索引文件。
+ * 生成索引时不评估 @Conditional，条件仍在注册时按当前环境判断，与 scan 行为一致。
+ */
+@Component
+@Slf4j
+public class PluginComponentIndex {
+
+    private static final String HEADER = "# plugin component index";
+    private static final String BASE_PACKAGE_KEY = "base-package=";
+    private static final String COMPONENT_STEREOTYPE = "org.springframework.stereotype.Component";
+
+    @Autowired
+    private ApplicationContext platformContext;
+
+    @Value("${platform.plugin.component-index.enabled:true}")
+    private boolean enabled;
+
+    @Value("${platform.plugin.component-index.dir:data/component-index}")
+    private String indexDir;
+
+    /**
+     * 解析插件的组件类；索引不可用时返回 null，调用方应回退到 scan
+     */
+    public List<Class<?>> resolve(PluginContext context, String basePackage, ClassLoader classLoader) {
+        if (!enabled || context.getPackageHash() == null) {
+            return null;
+        }
+        try {
+            List<String> classNames = loadClassNames(context, basePackage, classLoader);
+            List<Class<?>> classes = new ArrayList<>(classNames.size());
+            for (String className : classNames) {
+                classes.add(ClassUtils.forName(className, classLoader));
+            }
+            return classes;
+        } catch (Exception | LinkageError e) {
+            log.warn("Component index unavailable for plugin {}, fallback to scanning: {}", context.getPluginId(), e.toString());
+            return null;
+        }
+    }
+
+    private List<String> loadClassNames(PluginContext context, String basePackage, ClassLoader classLoader) throws IOException {
+        Path indexFile = Paths.get(indexDir, context.getPackageHash() + ".idx");
+        List<String> cached = readIndexFile(indexFile, basePackage);
+        if (cached != null) {
+            return cached;
+        }
+
+        List<String> classNames = readSpringComponents(context.getPackageFilePath(), basePackage);
+        String source = "META-INF/spring.components";
+        if (classNames == null) {
+            classNames = generate(basePackage, classLoader);
+            source = "scan";
+        }
+        writeIndexFile(indexFile, basePackage, classNames);
+        log.info("Built component index for plugin {} from {}: {} component(s)", context.getPluginId(), source, classNames.size());
+        return classNames;
+    }
+
+    /**
+     * 读取缓存的索引文件，不存在或基础包不一致时返回 null
+     */
+    private List<String> readIndexFile(Path indexFile, String basePackage) throws IOException {
+        if (!Files.exists(indexFile)) {
+            return null;
+        }
+        List<String> lines = Files.readAllLines(indexFile, StandardCharsets.UTF_8);
+        if (lines.size() < 2 || !HEADER.equals(lines.get(0)) || !(BASE_PACKAGE_KEY + basePackage).equals(lines.get(1))) {
+            return null;
+        }
+        return lines.subList(2, lines.size()).stream()
+                .map(String::trim)
+                .filter(l -> !l.isEmpty())
+                .toList();
+    }
+
+    private void writeIndexFile(Path indexFile, String basePackage, List<String> classNames) throws IOException {
+        Files.createDirectories(indexFile.getParent());
+        List<String> lines = new ArrayList<>(classNames.size() + 2);
+        lines.add(HEADER);
+        lines.add(BASE_PACKAGE_KEY + basePackage);
+        lines.addAll(classNames);
+        // 先写临时文件再移动，避免并发加载读到半个文件
+        Path tmp = Files.createTempFile(indexFile.getParent(), "idx-", ".tmp");
+        Files.write(tmp, lines, StandardCharsets.UTF_8);
+        Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * 读取插件包中的 META-INF/spring.components，仅保留基础包下的 @Component 类；不存在时返回 null
+     */
+    private List<String> readSpringComponents(String packagePath, String basePackage) throws IOException {
+        if (packagePath == null) {
+            return null;
+        }
+        try (ZipFile zip = new ZipFile(packagePath)) {
+            ZipEntry entry = zip.getEntry("META-INF/spring.components");
+            if (entry == null) {
+                return null;
+            }
+            Properties props = new Properties();
+            try (InputStream is = zip.getInputStream(entry)) {
+                props.load(is);
+            }
+            List<String> classNames = new ArrayList<>();
+            for (String className : props.stringPropertyNames()) {
+                if (!className.startsWith(basePackage + ".")) {
+                    continue;
+                }
+                for (String stereotype : props.getProperty(className).split(",")) {
+                    if (COMPONENT_STEREOTYPE.equals(stereotype.trim())) {
+                        classNames.add(className);
+                        break;
+                    }
+                }
+            }
+            classNames.sort(null);
+            return classNames;
+        }
+    }
+
+    /**
+     * 扫描一次插件包生成组件列表（与 scan 使用相同的默认组件注解，但不评估条件注解）
+     */
+    private List<String> generate(String basePackage, ClassLoader classLoader) {
+        List<TypeFilter> includes = new ArrayList<>();
+        includes.add(new AnnotationTypeFilter(Component.class));
+        addAnnotationFilterIfPresent(includes, "jakarta.annotation.ManagedBean", classLoader);
+        addAnnotationFilterIfPresent(includes, "jakarta.inject.Named", classLoader);
+
+        ClassPathScanningCandidateComponentProvider provider =
+                new ClassPathScanningCandidateComponentProvider(false, platformContext.getEnvironment()) {
+                    @Override
+                    protected boolean isCandidateComponent(MetadataReader reader) throws IOException {
+                        MetadataReaderFactory factory = getMetadataReaderFactory();
+                        for (TypeFilter filter : includes) {
+                            if (filter.match(reader, factory)) {
+                                return true;
+                            }
+                        }
+                        return false;
+                    }
+                };
+        provider.setResourceLoader(new DefaultResourceLoader(classLoader));
+
+        List<String> classNames = new ArrayList<>();
+        for (BeanDefinition candidate : provider.findCandidateComponents(basePackage)) {
+            classNames.add(candidate.getBeanClassName());
+        }
+        classNames.sort(null);
+        return classNames;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void addAnnotationFilterIfPresent(List<TypeFilter> includes, String annotationName, ClassLoader classLoader) {
+        try {
+            includes.add(new AnnotationTypeFilter((Class<? extends Annotation>) ClassUtils.forName(annotationName, classLoader), false));
+        } catch (ClassNotFoundException | LinkageError ignore) {
+            // 注解不在类路径上
+        }
+    }
+}
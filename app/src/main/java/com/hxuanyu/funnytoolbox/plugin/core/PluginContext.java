@@ -10,6 +10,8 @@ import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * 插件运行时上下文
@@ -19,7 +21,9 @@ public class PluginContext {
 
     private String pluginId;
     private PluginDescriptor descriptor;
-    private PluginStatus status;
+
+    // 插件状态：请求线程无锁读取，生命周期操作通过 CAS 迁移
+    private final AtomicReference<PluginStatus> status = new AtomicReference<>();
 
     // 类加载器
     private PluginClassLoader classLoader;
@@ -46,6 +50,9 @@ public class PluginContext {
     private LocalDateTime loadTime;
     private LocalDateTime startTime;
 
+    // 生命周期各阶段耗时（重载时沿用，保留历史数据）
+    private PluginTimings timings = new PluginTimings();
+
     // 包类型与来源（用于前端-only 插件等场景）
     public enum PackageType { JAR, ZIP }
 
@@ -55,6 +62,59 @@ public class PluginContext {
     // 插件包文件的绝对路径（用于静态资源提取等）
     private String packageFilePath;
 
+    // 插件包内容哈希（SHA-256），用于判断包文件是否发生变化
+    private String packageHash;
+
+    // 加载代次：每次加载分配新值，用于区分蓝绿重载时并存的新旧版本（路由条件、静态缓存目录）
+    private long generation;
+
+    // 是否为懒加载占位上下文（未创建类加载器与 Spring 上下文，首次请求时被真正的上下文替换）
+    private volatile boolean placeholder;
+
+    // 最近一次启用或激活失败的原因（成功启用后清除）
+    private volatile String errorMessage;
+
+    // 正在处理中的请求数（由 PluginAccessFilter 计数），蓝绿重载时用于排空旧版本
+    private final AtomicInteger inFlightRequests = new AtomicInteger();
+
+    public PluginStatus getStatus() {
+        return status.get();
+    }
+
+    /**
+     * 直接设置状态（仅用于初始化新建的上下文）
+     */
+    public void setStatus(PluginStatus newStatus) {
+        status.set(newStatus);
+    }
+
+    /**
+     * 原子地从 expected 迁移到 target；当前状态不是 expected 时返回 false
+     *
+     * @throws IllegalStateException expected → target 不是合法迁移
+     */
+    public boolean transition(PluginStatus expected, PluginStatus target) {
+        if (!expected.canTransitionTo(target)) {
+            throw new IllegalStateException("Illegal plugin status transition: " + expected + " -> " + target);
+        }
+        return status.compareAndSet(expected, target);
+    }
+
+    /**
+     * 从当前状态迁移到 target（当前状态允许时），返回迁移前的状态；不允许迁移时返回 null
+     */
+    public PluginStatus transitionTo(PluginStatus target) {
+        while (true) {
+            PluginStatus current = status.get();
+            if (current == null || !current.canTransitionTo(target)) {
+                return null;
+            }
+            if (status.compareAndSet(current, target)) {
+                return current;
+            }
+        }
+    }
+
     @Data
     public static class MappingInfo {
         private Object handler;
@@ -0,0 +1,274 @@
+package com.hxuanyu.funnytoolbox.plugin.core;
+
+import com.hxuanyu.funnytoolbox.plugin.model.PluginDescriptor;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 插件目录监听（热部署）
+ * 基于 WatchService 监听 platform.plugin.dir 中 JAR/ZIP 包的新增、变更与删除，
+ * 只对受影响的插件执行加载、重载或卸载，部署流水线直接向目录投放文件即可生效。
+ * 为避免处理写入中途的文件，事件会先去抖：距最近一次事件超过 debounce-ms 且两次检查间大小、修改时间均未变化才处理。
+ * 包内容哈希与已加载插件一致时（例如通过管理接口安装的包）不会重复处理。
+ * 新增的包按与启动加载相同的规则判定懒加载（plugin.yml 的 lazy、platform.plugin.lazy），懒加载插件仅注册占位。
+ * 默认关闭，通过 platform.plugin.watch.enabled=true 开启。
+ */
+@Component
+@Slf4j
+public class PluginDirectoryWatcher {
+
+    @Autowired
+    private PluginManager pluginManager;
+
+    @Autowired
+    private PluginPackageIndex packageIndex;
+
+    @Value("${platform.plugin.dir:./plugins}")
+    private String pluginDir;
+
+    @Value("${platform.plugin.watch.enabled:false}")
+    private boolean enabled;
+
+    @Value("${platform.plugin.watch.debounce-ms:1500}")
+    private long debounceMs;
+
+    private volatile WatchService watchService;
+    private Thread worker;
+
+    // 待处理的包文件 -> 最近一次观察到的状态
+    private final Map<Path, Pending> pending = new HashMap<>();
+
+    private static class Pending {
+        private long lastEventMillis;
+        private long size = -1;
+        private long modified = -1;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        Path dir = baseDir();
+        try {
+            Files.createDirectories(dir);
+            watchService = FileSystems.getDefault().newWatchService();
+            dir.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            log.error("Failed to watch plugin directory {}", dir, e);
+            return;
+        }
+        worker = new Thread(this::run, "plugin-dir-watcher");
+        worker.setDaemon(true);
+        worker.start();
+        log.info("Watching plugin directory for hot deployment: {} (debounce {} ms)", dir, debounceMs);
+    }
+
+    @PreDestroy
+    public void stop() {
+        WatchService ws = watchService;
+        watchService = null;
+        if (ws != null) {
+            try {
+                ws.close();
+            } catch (IOException ignore) {
+            }
+        }
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    private void run() {
+        Path dir = baseDir();
+        long pollMs = Math.max(100, debounceMs / 2);
+        while (watchService != null) {
+            try {
+                WatchKey key = watchService.poll(pollMs, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            // 事件丢失：把目录中的包与已索引的包都纳入对账
+                            log.warn("Plugin directory watch overflow, rescanning {}", dir);
+                            markAll(dir);
+                            continue;
+                        }
+                        Path file = dir.resolve((Path) event.context()).toAbsolutePath().normalize();
+                        if (isPackageName(file)) {
+                            mark(file);
+                        }
+                    }
+                    key.reset();
+                }
+                processDue();
+            } catch (ClosedWatchServiceException | InterruptedException e) {
+                break;
+            } catch (Exception e) {
+                log.error("Plugin directory watcher error", e);
+            }
+        }
+        log.info("Plugin directory watcher stopped");
+    }
+
+    private void mark(Path file) {
+        pending.computeIfAbsent(file, k -> new Pending()).lastEventMillis = System.currentTimeMillis();
+    }
+
+    private void markAll(Path dir) {
+        try (Stream<Path> stream = Files.list(dir)) {
+            stream.filter(PluginPackageIndex::isPackageFile)
+                    .forEach(p -> mark(p.toAbsolutePath().normalize()));
+        } catch (IOException e) {
+            log.warn("Failed to list plugin directory {}: {}", dir, e.getMessage());
+        }
+        pluginManager.getAllPlugins().forEach(dto ->
+                pluginManager.findContext(dto.getId())
+                        .map(PluginContext::getPackageFilePath)
+                        .filter(p -> !Files.exists(Paths.get(p)))
+                        .ifPresent(p -> mark(Paths.get(p).toAbsolutePath().normalize())));
+    }
+
+    /**
+     * 处理已过去抖时间且写入稳定的文件
+     */
+    private void processDue() {
+        long now = System.currentTimeMillis();
+        List<Path> due = new ArrayList<>();
+        for (Map.Entry<Path, Pending> e : pending.entrySet()) {
+            Pending p = e.getValue();
+            if (now - p.lastEventMillis < debounceMs) {
+                continue;
+            }
+            Path file = e.getKey();
+            if (Files.exists(file)) {
+                long size;
+                long modified;
+                try {
+                    size = Files.size(file);
+                    modified = Files.getLastModifiedTime(file).toMillis();
+                } catch (IOException ex) {
+                    continue;
+                }
+                if (size != p.size || modified != p.modified) {
+                    // 仍在写入或首次检查：记录状态并再等一个去抖周期
+                    p.size = size;
+                    p.modified = modified;
+                    p.lastEventMillis = now;
+                    continue;
+                }
+            }
+            due.add(file);
+        }
+        for (Path file : due) {
+            pending.remove(file);
+            try {
+                if (Files.exists(file)) {
+                    onPackageChanged(file);
+                } else {
+                    onPackageRemoved(file);
+                }
+            } catch (Exception ex) {
+                log.error("Hot deployment failed for {}", file.getFileName(), ex);
+            }
+        }
+    }
+
+    private void onPackageChanged(Path file) throws Exception {
+        PluginPackageIndex.Entry previous = packageIndex.get(file);
+        PluginPackageIndex.Entry entry;
+        try {
+            entry = packageIndex.update(file);
+        } catch (Exception e) {
+            log.warn("Ignore invalid plugin package {}: {}", file.getFileName(), e.getMessage());
+            return;
+        }
+        String pluginId = entry.getPluginId();
+
+        // 同一文件换成了另一个插件：先卸载原插件
+        if (previous != null && !previous.getPluginId().equals(pluginId)) {
+            Optional<PluginContext> old = pluginManager.findContextByPackage(file);
+            if (old.isPresent() && old.get().getPluginId().equals(previous.getPluginId())) {
+                log.info("🔥 Package {} now provides {} instead of {}, unloading the old plugin",
+                        file.getFileName(), pluginId, previous.getPluginId());
+                // 包文件已属于新插件，清除旧上下文的包路径，避免卸载 ZIP 插件时把新包删掉
+                old.get().setPackageFilePath(null);
+                pluginManager.unloadPlugin(previous.getPluginId());
+            }
+        }
+
+        Optional<PluginContext> loaded = pluginManager.findContext(pluginId);
+        if (loaded.isEmpty()) {
+            log.info("🔥 New plugin package detected: {} ({})", file.getFileName(), pluginId);
+            // 懒加载判定与启动加载一致：仅注册占位，首次访问时激活
+            PluginDescriptor descriptor = pluginManager.readDescriptorFromArchive(file.toFile());
+            if (pluginManager.isLazy(descriptor) && !pluginManager.isRequiredByLoadedPlugin(pluginId)) {
+                pluginManager.registerPlaceholder(file.toFile(), descriptor);
+                return;
+            }
+            pluginManager.loadPlugin(file.toFile());
+            if (pluginManager.readPersistedEnabledOrDefaultTrue(pluginId)) {
+                pluginManager.enablePlugin(pluginId);
+            }
+            return;
+        }
+
+        PluginContext context = loaded.get();
+        if (entry.getContentHash().equals(context.getPackageHash())) {
+            log.debug("Plugin package {} unchanged, skip", file.getFileName());
+            return;
+        }
+        String loadedPath = context.getPackageFilePath();
+        if (loadedPath != null && Files.exists(Paths.get(loadedPath))
+                && !Paths.get(loadedPath).toAbsolutePath().normalize().equals(file)) {
+            log.warn("Plugin {} is already loaded from {}, ignore package {}", pluginId, loadedPath, file.getFileName());
+            return;
+        }
+        log.info("🔥 Plugin package changed: {} ({}), reloading", file.getFileName(), pluginId);
+        context.setPackageFilePath(file.toString());
+        pluginManager.reloadPlugin(pluginId);
+    }
+
+    private void onPackageRemoved(Path file) throws Exception {
+        Optional<PluginContext> loaded = pluginManager.findContextByPackage(file);
+        packageIndex.remove(file);
+        if (loaded.isPresent()) {
+            log.info("🔥 Plugin package removed: {} ({}), unloading", file.getFileName(), loaded.get().getPluginId());
+            pluginManager.unloadPlugin(loaded.get().getPluginId());
+        }
+    }
+
+    private static boolean isPackageName(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        return name.endsWith(".jar") || name.endsWith(".zip");
+    }
+
+    private Path baseDir() {
+        return Paths.get(pluginDir).toAbsolutePath().normalize();
+    }
+}
@@ -2,11 +2,16 @@ package com.hxuanyu.funnytoolbox.plugin.core;
 
 
 import com.hxuanyu.toolbox.plugin.api.IPlugin;
+import com.hxuanyu.funnytoolbox.plugin.metrics.PluginMetrics;
+import com.hxuanyu.funnytoolbox.plugin.model.PluginBulkheadConfig;
 import com.hxuanyu.funnytoolbox.plugin.model.PluginDTO;
 import com.hxuanyu.funnytoolbox.plugin.model.PluginDescriptor;
 import com.hxuanyu.funnytoolbox.plugin.model.PluginException;
+import com.hxuanyu.funnytoolbox.plugin.model.PluginPhaseTiming;
+import com.hxuanyu.funnytoolbox.plugin.model.PluginReloadMode;
 import com.hxuanyu.funnytoolbox.plugin.model.PluginStatus;
 import com.hxuanyu.funnytoolbox.plugin.registry.MenuRegistry;
+import com.hxuanyu.funnytoolbox.plugin.registry.PluginHandlerExecutors;
 import com.hxuanyu.funnytoolbox.plugin.registry.RouteRegistry;
 import com.hxuanyu.funnytoolbox.plugin.registry.StaticResourceRegistry;
 import lombok.extern.slf4j.Slf4j;
@@ -29,14 +34,13 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
-import org.apache.commons.io.FileUtils;
 
 /**
  * 插件管理器
@@ -48,6 +52,8 @@ public class PluginManager {
     private final Map<String, PluginContext> pluginContexts = new ConcurrentHashMap<>();
     // 处于重载过程中的插件ID集合，用于在卸载阶段跳过包文件删除（以便随后从同一包重新加载）
     private final Set<String> reloadingIds = ConcurrentHashMap.newKeySet();
+    // 每个插件一把生命周期锁（可重入）：同一插件的加载/启用/禁用/卸载/重载串行执行，不同插件互不阻塞
+    private final Map<String, ReentrantLock> lifecycleLocks = new ConcurrentHashMap<>();
 
     @Autowired
     private RouteRegistry routeRegistry;
@@ -61,12 +67,60 @@ public class PluginManager {
     @Autowired
     private ApplicationContext platformContext;
 
+    @Autowired
+    private PluginPackageIndex packageIndex;
+
+    @Autowired
+    private PluginComponentIndex componentIndex;
+
+    @Autowired
+    private PluginStaticCache staticCache;
+
+    @Autowired
+    private PluginMetrics pluginMetrics;
+
+    @Autowired
+    private PluginRateLimits rateLimits;
+
+    @Autowired
+    private PluginHandlerExecutors handlerExecutors;
+
     @Value("${platform.plugin.dir:./plugins}")
     private String pluginDir;
 
     @Value("${platform.plugin.auto-load:true}")
     private boolean autoLoad;
 
+    @Value("${platform.plugin.load-parallelism:0}")
+    private int loadParallelism;
+
+    @Value("${platform.plugin.reload.mode:restart}")
+    private String reloadMode;
+
+    @Value("${platform.plugin.reload.drain-timeout-ms:30000}")
+    private long drainTimeoutMs;
+
+    @Value("${platform.plugin.static-cache.zip-mode:extract}")
+    private String zipMode;
+
+    @Value("${platform.plugin.lazy:false}")
+    private boolean lazyByDefault;
+
+    @Value("${platform.plugin.bulkhead.queue-timeout-ms:1000}")
+    private long defaultQueueTimeoutMs;
+
+    // 插件加载代次计数器
+    private final AtomicLong generations = new AtomicLong();
+
+    // 并发隔离：pluginId -> 舱壁，仅包含限制了并发数的插件
+    private final Map<String, PluginBulkhead> bulkheads = new ConcurrentHashMap<>();
+
+    // API 前缀树快照，插件增删时整体替换
+    private volatile ApiPrefixTrie apiPrefixes = ApiPrefixTrie.EMPTY;
+
+    // 正在激活的懒加载插件：pluginId -> 激活结果，并发的首次请求共享同一次激活
+    private final Map<String, CompletableFuture<Void>> activations = new ConcurrentHashMap<>();
+
     // 保留核心修复，移除不必要的诊断开关
 
     /**
@@ -93,42 +147,68 @@ public class PluginManager {
 
         log.info("Found {} plugin package(s), loading...", pkgFiles.length);
 
-        for (File pkgFile : pkgFiles) {
-            try {
-                loadPlugin(pkgFile);
-
-                // 自动启用
-                PluginDescriptor descriptor = readDescriptorFromArchive(pkgFile);
-                String pluginId = descriptor.getId();
-                boolean shouldEnable = readPersistedEnabledOrDefaultTrue(pluginId);
-                if (shouldEnable) {
-                    enablePlugin(pluginId);
-                } else {
-                    log.info("Plugin {} is marked as disabled (persisted). Skip auto enable.", pluginId);
-                }
+        // 启动时全量构建一次包索引，后续读取描述符直接复用索引中的解析结果
+        packageIndex.rebuild();
 
-            } catch (Exception e) {
-                log.error("Failed to load plugin: {}", pkgFile.getName(), e);
-            }
+        new PluginStartupLoader(this, resolveLoadParallelism()).load(pkgFiles);
+    }
+
+    /**
+     * 启动加载并行度，未配置（<=0）时按 CPU 核数取值，最多 8
+     */
+    private int resolveLoadParallelism() {
+        if (loadParallelism > 0) {
+            return loadParallelism;
         }
+        return Math.min(8, Math.max(1, Runtime.getRuntime().availableProcessors()));
     }
 
     /**
      * 加载插件
      */
-    public synchronized void loadPlugin(File packageFile) throws Exception {
-        log.info("Loading plugin from: {}", packageFile.getAbsolutePath());
-
+    public void loadPlugin(File packageFile) throws Exception {
+        long t0 = System.nanoTime();
         // 1. 读取插件描述符（兼容 jar/zip 档）
         PluginDescriptor descriptor = readDescriptorFromArchive(packageFile);
-        String pluginId = descriptor.getId();
+        long descriptorNanos = System.nanoTime() - t0;
 
-        if (pluginContexts.containsKey(pluginId)) {
-            throw new PluginException("Plugin already loaded: " + pluginId);
+        ReentrantLock lock = lockOf(descriptor.getId());
+        lock.lock();
+        try {
+            if (pluginContexts.containsKey(descriptor.getId())) {
+                throw new PluginException("Plugin already loaded: " + descriptor.getId());
+            }
+
+            PluginContext context = preparePlugin(packageFile, descriptor, descriptorNanos);
+            registerPreparedPlugin(context);
+            context.getTimings().record("load.total", t0);
+        } finally {
+            lock.unlock();
         }
+    }
+
+    /**
+     * 获取插件的生命周期锁
+     */
+    private ReentrantLock lockOf(String pluginId) {
+        return lifecycleLocks.computeIfAbsent(pluginId, k -> new ReentrantLock());
+    }
+
+    /**
+     * 构建插件运行时上下文（类加载器、Spring 上下文、onLoad），但不注册到平台。
+     * 只操作新建的上下文，不依赖管理器锁，可供启动加载器并行调用。
+     *
+     * @param descriptorNanos 读取描述符的耗时，计入 load.descriptor 阶段
+     */
+    PluginContext preparePlugin(File packageFile, PluginDescriptor descriptor, long descriptorNanos) throws Exception {
+        log.info("Loading plugin from: {}", packageFile.getAbsolutePath());
+        String pluginId = descriptor.getId();
 
         // 2. 创建插件上下文
         PluginContext context = new PluginContext();
+        PluginTimings timings = context.getTimings();
+        timings.recordNanos("load.descriptor", descriptorNanos);
+        long t = System.nanoTime();
         context.setPluginId(pluginId);
         context.setDescriptor(descriptor);
         context.setStatus(PluginStatus.LOADED);
@@ -137,44 +217,15 @@ public class PluginManager {
         context.setLoadTime(LocalDateTime.now());
         context.setPackageFilePath(packageFile.getAbsolutePath());
         context.setPackageType(packageFile.getName().endsWith(".jar") ? PluginContext.PackageType.JAR : PluginContext.PackageType.ZIP);
+        context.setPackageHash(packageIndex.describe(packageFile).getContentHash());
+        context.setGeneration(generations.incrementAndGet());
+        timings.record("load.directories", t);
         // 3. 如果存在 mainClass（通常是 .jar 后端插件），则创建类加载器和 Spring 上下文
         if (StringUtils.hasText(descriptor.getMainClass())) {
-            URL pkgUrl = packageFile.toURI().toURL();
-            PluginClassLoader classLoader = new PluginClassLoader(
-                    pluginId,
-                    new URL[]{pkgUrl},
-                    this.getClass().getClassLoader()
-            );
-            context.setClassLoader(classLoader);
-
-            // 创建插件 Spring 上下文
-            AnnotationConfigApplicationContext pluginAppContext = new AnnotationConfigApplicationContext();
-            pluginAppContext.setClassLoader(classLoader);
-            pluginAppContext.setParent(platformContext);
-
-            // 平台上下文 Bean
-            PlatformContextImpl platformCtx = new PlatformContextImpl(context);
-            pluginAppContext.registerBean(com.hxuanyu.toolbox.plugin.api.PlatformContext.class, () -> platformCtx);
-            pluginAppContext.registerBean(PlatformContextImpl.class, () -> platformCtx);
-
-            // 扫描并刷新
-            String basePackage = getBasePackage(descriptor.getMainClass());
-            if (StringUtils.hasText(basePackage)) {
-                pluginAppContext.scan(basePackage);
-            }
-            pluginAppContext.refresh();
-            context.setApplicationContext(pluginAppContext);
-
-            // 实例化主类
-            Class<?> mainClass = classLoader.loadClass(descriptor.getMainClass());
-            IPlugin pluginInstance = (IPlugin) mainClass.getDeclaredConstructor().newInstance();
-            context.setPluginInstance(pluginInstance);
-
-            // 调用 onLoad
             try {
-                pluginInstance.onLoad(platformCtx);
+                createPluginRuntime(packageFile, context);
             } catch (Exception e) {
-                log.error("Plugin onLoad failed: {}", pluginId, e);
+                releaseRuntime(context);
                 throw e;
             }
         } else {
@@ -182,150 +233,522 @@ public class PluginManager {
         }
 
         // 7. 初始化标签到状态文件（若不存在则写入插件内置标签；若已存在，尊重已有值）
+        t = System.nanoTime();
         try {
             initPersistedTagsIfAbsent(pluginId, descriptor.getTags());
         } catch (Exception ex) {
             log.warn("Init persisted tags failed for {}: {}", pluginId, ex.getMessage());
         }
+        timings.record("load.tags", t);
+        return context;
+    }
 
+    /**
+     * 注册已构建好的插件上下文；若同 ID 插件已被其它线程抢先加载，则释放当前上下文并报错
+     */
+    void registerPreparedPlugin(PluginContext context) {
+        PluginDescriptor descriptor = context.getDescriptor();
         // 8. 保存上下文
-        pluginContexts.put(pluginId, context);
+        if (pluginContexts.putIfAbsent(context.getPluginId(), context) != null) {
+            releaseRuntime(context);
+            throw new PluginException("Plugin already loaded: " + context.getPluginId());
+        }
+        rebuildApiPrefixes();
+        refreshRequestLimits(context.getPluginId());
 
         log.info("✅ Plugin loaded: {} v{}", descriptor.getName(), descriptor.getVersion());
     }
 
+    /**
+     * 插件是否懒加载：描述符声明优先，未声明时使用平台配置
+     */
+    boolean isLazy(PluginDescriptor descriptor) {
+        return descriptor.getLazy() != null ? descriptor.getLazy() : lazyByDefault;
+    }
+
+    /**
+     * 是否被已加载（非占位）的插件依赖：这类插件需立即加载，与启动时的懒加载判定一致
+     */
+    boolean isRequiredByLoadedPlugin(String pluginId) {
+        for (PluginContext ctx : pluginContexts.values()) {
+            if (!ctx.isPlaceholder() && PluginStartupLoader.dependencyIds(ctx.getDescriptor()).contains(pluginId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 注册懒加载占位上下文：只保存描述符与包信息，不创建类加载器、Spring 上下文，也不提取静态资源。
+     * 持久化状态为启用时注册菜单并处于 LAZY 状态，首次访问其 API 前缀或 /plugins/{id}/** 时激活。
+     */
+    void registerPlaceholder(File packageFile, PluginDescriptor descriptor) throws Exception {
+        String pluginId = descriptor.getId();
+        ReentrantLock lock = lockOf(pluginId);
+        lock.lock();
+        try {
+            PluginContext context = new PluginContext();
+            context.setPluginId(pluginId);
+            context.setDescriptor(descriptor);
+            context.setPlaceholder(true);
+            context.setLoadTime(LocalDateTime.now());
+            context.setPackageFilePath(packageFile.getAbsolutePath());
+            context.setPackageType(packageFile.getName().endsWith(".jar") ? PluginContext.PackageType.JAR : PluginContext.PackageType.ZIP);
+            context.setPackageHash(packageIndex.describe(packageFile).getContentHash());
+            context.setGeneration(generations.incrementAndGet());
+            boolean enabled = readPersistedEnabledOrDefaultTrue(pluginId);
+            context.setStatus(enabled ? PluginStatus.LAZY : PluginStatus.DISABLED);
+            initPersistedTagsIfAbsent(pluginId, descriptor.getTags());
+
+            if (pluginContexts.putIfAbsent(pluginId, context) != null) {
+                throw new PluginException("Plugin already loaded: " + pluginId);
+            }
+            rebuildApiPrefixes();
+            refreshRequestLimits(pluginId);
+            if (enabled) {
+                menuRegistry.registerMenu(buildMenuItem(context));
+            }
+            log.info("💤 Plugin registered lazily: {} v{}", descriptor.getName(), descriptor.getVersion());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 确保懒加载插件已激活（供请求线程调用）：处于 LAZY 状态的占位插件会被加载并启用，
+     * 并发的首次请求等待同一次激活；非懒加载插件直接返回。
+     * 激活失败的占位插件进入 ERROR 状态，请求不再触发激活，直到管理员重新启用或重载。
+     */
+    public void ensureActivated(String pluginId) throws Exception {
+        if (pluginId == null) {
+            return;
+        }
+        CompletableFuture<Void> running = activations.get(pluginId);
+        if (running != null) {
+            awaitActivation(running);
+            return;
+        }
+        PluginContext context = pluginContexts.get(pluginId);
+        if (context != null && context.isPlaceholder() && context.getStatus() == PluginStatus.LAZY) {
+            activate(pluginId);
+        }
+    }
+
+    /**
+     * 激活懒加载插件（合并并发调用）
+     */
+    private void activate(String pluginId) throws Exception {
+        CompletableFuture<Void> mine = new CompletableFuture<>();
+        CompletableFuture<Void> running = activations.putIfAbsent(pluginId, mine);
+        if (running != null) {
+            awaitActivation(running);
+            return;
+        }
+        try {
+            doActivate(pluginId);
+            mine.complete(null);
+        } catch (Exception e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            activations.remove(pluginId, mine);
+        }
+    }
+
+    private void awaitActivation(CompletableFuture<Void> activation) throws Exception {
+        try {
+            activation.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    private void doActivate(String pluginId) throws Exception {
+        PluginContext placeholder = getContext(pluginId);
+        if (!placeholder.isPlaceholder()) {
+            return;
+        }
+        try {
+            // 先激活所依赖的懒加载插件（启动加载器已排除循环依赖）
+            for (String dep : PluginStartupLoader.dependencyIds(placeholder.getDescriptor())) {
+                PluginContext depContext = pluginContexts.get(dep);
+                if (depContext != null && depContext.isPlaceholder()) {
+                    activate(dep);
+                }
+            }
+        } catch (Exception e) {
+            failActivation(placeholder, e);
+            throw e;
+        }
+
+        ReentrantLock lock = lockOf(pluginId);
+        lock.lock();
+        try {
+            placeholder = getContext(pluginId);
+            if (!placeholder.isPlaceholder()) {
+                return;
+            }
+            log.info("Activating lazy plugin: {}", pluginId);
+            PluginTimings timings = placeholder.getTimings();
+            long t0 = System.nanoTime();
+
+            PluginContext context;
+            try {
+                File packageFile = new File(locatePackage(placeholder));
+                PluginDescriptor descriptor = readDescriptorFromArchive(packageFile);
+                context = preparePlugin(packageFile, descriptor, System.nanoTime() - t0);
+            } catch (Exception e) {
+                failActivation(placeholder, e);
+                throw e;
+            }
+            timings.mergeFrom(context.getTimings());
+            context.setTimings(timings);
+            if (!pluginContexts.replace(pluginId, placeholder, context)) {
+                releaseRuntime(context);
+                throw new PluginException("Plugin changed concurrently while activating: " + pluginId);
+            }
+            rebuildApiPrefixes();
+            refreshRequestLimits(pluginId);
+            // 占位阶段注册的菜单由启用流程重新注册
+            unregisterMenu(placeholder);
+            doEnablePlugin(pluginId);
+            timings.record("activate.total", t0);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 记录懒加载插件的激活失败：占位上下文进入 ERROR 并保留原因，移除占位菜单。
+     * 之后的请求直接返回 423，不再重复创建类加载器与 Spring 上下文。
+     */
+    private void failActivation(PluginContext placeholder, Exception e) {
+        placeholder.setErrorMessage(e.getMessage() != null ? e.getMessage() : e.getClass().getName());
+        if (placeholder.transitionTo(PluginStatus.ERROR) != null) {
+            unregisterMenu(placeholder);
+        }
+        log.error("Failed to activate lazy plugin: {}", placeholder.getPluginId(), e);
+    }
+
+    private void createPluginRuntime(File packageFile, PluginContext context) throws Exception {
+        PluginDescriptor descriptor = context.getDescriptor();
+        String pluginId = context.getPluginId();
+        PluginTimings timings = context.getTimings();
+
+        long t = System.nanoTime();
+        URL pkgUrl = packageFile.toURI().toURL();
+        PluginClassLoader classLoader = new PluginClassLoader(
+                pluginId,
+                new URL[]{pkgUrl},
+                this.getClass().getClassLoader()
+        );
+        context.setClassLoader(classLoader);
+
+        // 创建插件 Spring 上下文
+        AnnotationConfigApplicationContext pluginAppContext = new AnnotationConfigApplicationContext();
+        pluginAppContext.setClassLoader(classLoader);
+        pluginAppContext.setParent(platformContext);
+
+        // 平台上下文 Bean
+        PlatformContextImpl platformCtx = new PlatformContextImpl(context);
+        pluginAppContext.registerBean(com.hxuanyu.toolbox.plugin.api.PlatformContext.class, () -> platformCtx);
+        pluginAppContext.registerBean(PlatformContextImpl.class, () -> platformCtx);
+        timings.record("load.classloader", t);
+
+        // 注册组件并刷新：优先使用组件索引直接注册，索引不可用时回退到类路径扫描
+        t = System.nanoTime();
+        String basePackage = getBasePackage(descriptor.getMainClass());
+        if (StringUtils.hasText(basePackage)) {
+            List<Class<?>> components = componentIndex.resolve(context, basePackage, classLoader);
+            if (components != null) {
+                if (!components.isEmpty()) {
+                    pluginAppContext.register(components.toArray(new Class<?>[0]));
+                }
+                timings.record("load.context.index", t);
+            } else {
+                pluginAppContext.scan(basePackage);
+                timings.record("load.context.scan", t);
+            }
+        }
+        context.setApplicationContext(pluginAppContext);
+
+        t = System.nanoTime();
+        pluginAppContext.refresh();
+        timings.record("load.context.refresh", t);
+
+        // 实例化主类
+        t = System.nanoTime();
+        Class<?> mainClass = classLoader.loadClass(descriptor.getMainClass());
+        IPlugin pluginInstance = (IPlugin) mainClass.getDeclaredConstructor().newInstance();
+        context.setPluginInstance(pluginInstance);
+        timings.record("load.instantiate", t);
+
+        // 调用 onLoad
+        t = System.nanoTime();
+        try {
+            pluginInstance.onLoad(platformCtx);
+        } catch (Exception e) {
+            log.error("Plugin onLoad failed: {}", pluginId, e);
+            throw e;
+        } finally {
+            timings.record("load.onLoad", t);
+        }
+    }
+
+    /**
+     * 释放未注册成功的插件上下文所持有的 Spring 上下文与类加载器
+     */
+    private void releaseRuntime(PluginContext context) {
+        try {
+            if (context.getApplicationContext() != null) {
+                context.getApplicationContext().close();
+            }
+        } catch (Exception e) {
+            log.warn("Error closing ApplicationContext: {}", context.getPluginId(), e);
+        }
+        try {
+            if (context.getClassLoader() != null) {
+                context.getClassLoader().close();
+            }
+        } catch (IOException e) {
+            log.warn("Error closing ClassLoader: {}", context.getPluginId(), e);
+        }
+    }
+
     /**
      * 启用插件
      */
-    public synchronized void enablePlugin(String pluginId) throws Exception {
+    public void enablePlugin(String pluginId) throws Exception {
+        PluginContext current = pluginContexts.get(pluginId);
+        if (current != null && current.isPlaceholder()) {
+            // 懒加载占位：启用即激活
+            activate(pluginId);
+            return;
+        }
+        ReentrantLock lock = lockOf(pluginId);
+        lock.lock();
+        try {
+            doEnablePlugin(pluginId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void doEnablePlugin(String pluginId) throws Exception {
         PluginContext context = getContext(pluginId);
 
-        if (context.getStatus() == PluginStatus.ENABLED) {
+        PluginStatus from = context.getStatus();
+        if (from == PluginStatus.ENABLED) {
             log.warn("Plugin already enabled: {}", pluginId);
             return;
         }
+        if (!from.canTransitionTo(PluginStatus.ENABLED)) {
+            throw new PluginException("Cannot enable plugin " + pluginId + " in status " + from);
+        }
 
         log.info("Enabling plugin: {}", pluginId);
+        PluginTimings timings = context.getTimings();
+        long t0 = System.nanoTime();
 
         try {
             // 1. 调用插件 onEnable（如存在后端主类）
+            long t = System.nanoTime();
             if (context.getPluginInstance() != null) {
                 context.getPluginInstance().onEnable();
+                timings.record("enable.onEnable", t);
             }
 
             // 2. 注册 API 路由（仅后端插件）
             if (context.getApplicationContext() != null) {
+                t = System.nanoTime();
                 registerApiRoutes(context);
+                routeRegistry.activateGeneration(pluginId, context.getGeneration());
+                timings.record("enable.routes", t);
             }
 
             // 3. 注册静态资源
+            t = System.nanoTime();
             registerStaticResources(context);
+            timings.record("enable.static", t);
 
             // 4. 注册菜单
-            registerMenu(context);
+            t = System.nanoTime();
+            menuRegistry.registerMenu(buildMenuItem(context));
+            timings.record("enable.menu", t);
 
-            // 5. 更新状态
-            context.setStatus(PluginStatus.ENABLED);
+            // 5. 更新状态（路由与资源均已就绪后再对请求线程可见）
             context.setStartTime(LocalDateTime.now());
+            if (!context.transition(from, PluginStatus.ENABLED)) {
+                throw new PluginException("Plugin status changed concurrently: " + pluginId);
+            }
+
+            context.setErrorMessage(null);
 
             // 6. 持久化状态
+            t = System.nanoTime();
             savePluginEnabled(pluginId, true);
+            timings.record("enable.persist", t);
 
             log.info("✅ Plugin enabled: {}", pluginId);
 
         } catch (Exception e) {
-            context.setStatus(PluginStatus.ERROR);
+            context.transitionTo(PluginStatus.ERROR);
+            context.setErrorMessage(e.getMessage() != null ? e.getMessage() : e.getClass().getName());
             log.error("Failed to enable plugin: {}", pluginId, e);
             throw e;
+        } finally {
+            timings.record("enable.total", t0);
         }
     }
 
     /**
      * 禁用插件
      */
-    public synchronized void disablePlugin(String pluginId) throws Exception {
+    public void disablePlugin(String pluginId) throws Exception {
+        ReentrantLock lock = lockOf(pluginId);
+        lock.lock();
+        try {
+            doDisablePlugin(pluginId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void doDisablePlugin(String pluginId) throws Exception {
         PluginContext context = getContext(pluginId);
 
-        if (context.getStatus() != PluginStatus.ENABLED) {
+        if (context.isPlaceholder()) {
+            // 懒加载占位（含激活失败的占位）：仅切换状态、移除菜单并持久化
+            if (context.transition(PluginStatus.LAZY, PluginStatus.DISABLED)
+                    || context.transition(PluginStatus.ERROR, PluginStatus.DISABLED)) {
+                unregisterMenu(context);
+                savePluginEnabled(pluginId, false);
+                log.info("✅ Plugin disabled: {}", pluginId);
+            } else {
+                log.warn("Plugin not enabled: {}", pluginId);
+            }
+            return;
+        }
+
+        // 先切换状态，新请求立即被拦截，再逐步注销路由与资源
+        if (!context.transition(PluginStatus.ENABLED, PluginStatus.DISABLED)) {
             log.warn("Plugin not enabled: {}", pluginId);
             return;
         }
 
         log.info("Disabling plugin: {}", pluginId);
+        PluginTimings timings = context.getTimings();
+        long t0 = System.nanoTime();
 
         try {
             // 1. 调用插件 onDisable
+            long t = System.nanoTime();
             if (context.getPluginInstance() != null) {
                 context.getPluginInstance().onDisable();
+                timings.record("disable.onDisable", t);
             }
 
             // 2. 注销 API 路由
             if (!context.getRegisteredMappings().isEmpty()) {
+                t = System.nanoTime();
                 unregisterApiRoutes(context);
+                timings.record("disable.routes", t);
             }
 
             // 3. 注销静态资源
+            t = System.nanoTime();
             unregisterStaticResources(context);
+            timings.record("disable.static", t);
 
             // 4. 注销菜单
+            t = System.nanoTime();
             unregisterMenu(context);
+            timings.record("disable.menu", t);
 
-            // 5. 更新状态
-            context.setStatus(PluginStatus.DISABLED);
-
-            // 6. 持久化状态
+            // 5. 持久化状态
+            t = System.nanoTime();
             savePluginEnabled(pluginId, false);
+            timings.record("disable.persist", t);
 
             log.info("✅ Plugin disabled: {}", pluginId);
 
         } catch (Exception e) {
+            context.transitionTo(PluginStatus.ERROR);
             log.error("Failed to disable plugin: {}", pluginId, e);
             throw e;
+        } finally {
+            timings.record("disable.total", t0);
         }
     }
 
     /**
      * 卸载插件
      */
-    public synchronized void unloadPlugin(String pluginId) throws Exception {
+    public void unloadPlugin(String pluginId) throws Exception {
+        ReentrantLock lock = lockOf(pluginId);
+        lock.lock();
+        try {
+            doUnloadPlugin(pluginId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void doUnloadPlugin(String pluginId) throws Exception {
         // 先不要从全局上下文中移除，避免后续禁用步骤无法获取到上下文
         PluginContext context = getContext(pluginId);
 
         log.info("Unloading plugin: {}", pluginId);
+        PluginTimings timings = context.getTimings();
+        long t0 = System.nanoTime();
 
         // 1. 先禁用
         if (context.getStatus() == PluginStatus.ENABLED) {
-            disablePlugin(pluginId);
+            doDisablePlugin(pluginId);
+        }
+        if (context.isPlaceholder()) {
+            unregisterMenu(context);
+        }
+        // 禁用后可见的状态（LOADED / DISABLED / ERROR / LAZY）均可迁移到 UNLOADED；仍被拒绝说明状态被并发修改，放弃卸载
+        if (context.transitionTo(PluginStatus.UNLOADED) == null) {
+            throw new PluginException("Cannot unload plugin " + pluginId + " in status " + context.getStatus());
         }
 
         // 2. 调用插件 onUnload
+        long t = System.nanoTime();
         try {
             if (context.getPluginInstance() != null) {
                 context.getPluginInstance().onUnload();
+                timings.record("unload.onUnload", t);
             }
         } catch (Exception e) {
             log.error("Error in plugin onUnload: {}", pluginId, e);
         }
 
         // 3. 关闭 Spring 上下文
+        t = System.nanoTime();
         try {
             if (context.getApplicationContext() != null) {
                 context.getApplicationContext().close();
+                timings.record("unload.context.close", t);
             }
         } catch (Exception e) {
             log.error("Error closing ApplicationContext: {}", pluginId, e);
         }
 
         // 4. 关闭类加载器
+        t = System.nanoTime();
         try {
             if (context.getClassLoader() != null) {
                 context.getClassLoader().close();
+                timings.record("unload.classloader.close", t);
             }
         } catch (IOException e) {
             log.error("Error closing ClassLoader: {}", pluginId, e);
         }
 
         // 5. 所有清理完成后，再从全局上下文中移除
+        t = System.nanoTime();
         try {
             // 优化：对前端-only（ZIP）插件，尝试删除插件目录下的 ZIP 包文件
             // 仅当记录了包路径且位于平台插件目录下时才执行删除，避免误删外部路径或非 ZIP 包
@@ -338,6 +761,7 @@ public class PluginManager {
                     if (Files.exists(pkg) && pkg.toString().toLowerCase().endsWith(".zip") && pkg.startsWith(pluginsBase)) {
                         boolean deleted = deleteWithRetry(pkg.toFile(), 5, 300);
                         if (deleted) {
+                            packageIndex.remove(pkg);
                             log.info("Deleted ZIP plugin package file: {}", pkg);
                         } else {
                             log.warn("Failed to delete ZIP plugin package after retries: {}", pkg);
@@ -351,19 +775,237 @@ public class PluginManager {
         } catch (Exception ex) {
             log.warn("Exception while trying to delete plugin package for {}: {}", pluginId, ex.getMessage());
         } finally {
-            pluginContexts.remove(pluginId);
+            if (pluginContexts.remove(pluginId, context)) {
+                routeRegistry.removePlugin(pluginId);
+                rebuildApiPrefixes();
+                // 重载时保留请求指标与并发隔离计数，与耗时统计一致
+                if (!reloadingIds.contains(pluginId)) {
+                    pluginMetrics.remove(pluginId);
+                    bulkheads.remove(pluginId);
+                    rateLimits.remove(pluginId);
+                    handlerExecutors.release(pluginId);
+                    routeRegistry.evictRouteMetadata(pluginId);
+                }
+            }
+            staticCache.release(pluginId, context.getGeneration());
+            timings.record("unload.package", t);
         }
 
+        timings.record("unload.total", t0);
         log.info("✅ Plugin unloaded: {}", pluginId);
     }
 
     /**
      * 重新加载插件
      */
-    public synchronized void reloadPlugin(String pluginId) throws Exception {
+    public void reloadPlugin(String pluginId) throws Exception {
+        reloadPlugin(pluginId, PluginReloadMode.parse(reloadMode));
+    }
+
+    /**
+     * 按指定模式重新加载插件
+     */
+    public void reloadPlugin(String pluginId, PluginReloadMode mode) throws Exception {
+        // 整个重载过程只持有该插件的锁，等待资源释放期间不影响其它插件
+        ReentrantLock lock = lockOf(pluginId);
+        lock.lock();
+        try {
+            PluginContext context = getContext(pluginId);
+            if (context.isPlaceholder()) {
+                reloadPlaceholder(context);
+            } else if (mode == PluginReloadMode.BLUE_GREEN && context.getStatus() == PluginStatus.ENABLED) {
+                doBlueGreenReload(pluginId);
+            } else {
+                doReloadPlugin(pluginId);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void doReloadPlugin(String pluginId) throws Exception {
         PluginContext context = getContext(pluginId);
+        // 沿用旧上下文的耗时统计，重载后的新上下文合并写入
+        PluginTimings timings = context.getTimings();
+        long t0 = System.nanoTime();
+
+        long t = System.nanoTime();
+        String packagePath = locatePackage(context);
+        timings.record("reload.locate", t);
+
+        // 卸载（标记重载过程，避免卸载阶段删除包文件）
+        t = System.nanoTime();
+        reloadingIds.add(pluginId);
+        try {
+            doUnloadPlugin(pluginId);
+        } finally {
+            // 确保标记被清理
+            reloadingIds.remove(pluginId);
+        }
+        timings.record("reload.unload", t);
+
+        // 等待资源释放
+        t = System.nanoTime();
+        Thread.sleep(500);
+        timings.record("reload.wait", t);
+
+        // 重新加载
+        t = System.nanoTime();
+        loadPlugin(new File(packagePath));
+        PluginContext reloaded = getContext(pluginId);
+        timings.mergeFrom(reloaded.getTimings());
+        reloaded.setTimings(timings);
+        timings.record("reload.load", t);
+
+        // 自动启用
+        t = System.nanoTime();
+        doEnablePlugin(pluginId);
+        timings.record("reload.enable", t);
+        timings.record("reload.total", t0);
+    }
+
+    /**
+     * 重载尚未激活的懒加载插件：仅以新包重新注册占位
+     */
+    private void reloadPlaceholder(PluginContext context) throws Exception {
+        String pluginId = context.getPluginId();
+        File packageFile = new File(locatePackage(context));
+        reloadingIds.add(pluginId);
+        try {
+            doUnloadPlugin(pluginId);
+        } finally {
+            reloadingIds.remove(pluginId);
+        }
+        registerPlaceholder(packageFile, readDescriptorFromArchive(packageFile));
+    }
+
+    /**
+     * 蓝绿重载：在新的类加载器与 Spring 上下文中启动新版本（旧版本继续服务），
+     * 随后原子切换路由代次、静态资源位置、菜单与插件上下文，排空旧版本的在途请求后再关闭旧版本。
+     * 新版本启动失败时回滚，旧版本不受影响。
+     */
+    private void doBlueGreenReload(String pluginId) throws Exception {
+        PluginContext old = getContext(pluginId);
+        PluginTimings timings = old.getTimings();
+        long t0 = System.nanoTime();
+        log.info("Blue/green reloading plugin: {} (generation {})", pluginId, old.getGeneration());
+
+        long t = System.nanoTime();
+        File packageFile = new File(locatePackage(old));
+        long td = System.nanoTime();
+        PluginDescriptor descriptor = readDescriptorFromArchive(packageFile);
+        long descriptorNanos = System.nanoTime() - td;
+        if (!pluginId.equals(descriptor.getId())) {
+            throw new PluginException("Plugin package " + packageFile.getName() + " now provides " + descriptor.getId() + " instead of " + pluginId);
+        }
+        timings.record("reload.locate", t);
+
+        // 1. 启动新版本：onLoad、onEnable、注册（未生效的）路由、提取静态资源
+        t = System.nanoTime();
+        PluginContext next = preparePlugin(packageFile, descriptor, descriptorNanos);
+        String resourceLocation;
+        boolean nextEnabled = false;
+        try {
+            if (next.getPluginInstance() != null) {
+                next.getPluginInstance().onEnable();
+                nextEnabled = true;
+            }
+            if (next.getApplicationContext() != null) {
+                registerApiRoutes(next);
+            }
+            resourceLocation = prepareStaticResources(next);
+        } catch (Exception e) {
+            log.error("Failed to start new version of plugin {}, keep the running one", pluginId, e);
+            // 与 retire 相同的关闭顺序，避免新版本在 onEnable 中启动的任务与旧版本并存
+            unregisterApiRoutes(next);
+            stopInstance(next, nextEnabled, "rolling back");
+            releaseRuntime(next);
+            staticCache.release(pluginId, next.getGeneration());
+            throw e;
+        }
+        timings.record("reload.prepare", t);
+
+        // 2. 原子切换：路由代次 -> 静态资源位置 -> 菜单 -> 插件上下文
+        t = System.nanoTime();
+        routeRegistry.activateGeneration(pluginId, next.getGeneration());
+        if (resourceLocation != null) {
+            String urlPath = "/plugins/" + pluginId + "/**";
+            staticResourceRegistry.registerResources(pluginId, urlPath, resourceLocation);
+            next.getRegisteredResourcePaths().add(urlPath);
+        } else {
+            staticResourceRegistry.unregisterResources(pluginId);
+        }
+        menuRegistry.replaceMenu(buildMenuItem(next));
+        next.setStartTime(LocalDateTime.now());
+        next.transition(PluginStatus.LOADED, PluginStatus.ENABLED);
+        timings.mergeFrom(next.getTimings());
+        next.setTimings(timings);
+        pluginContexts.put(pluginId, next);
+        rebuildApiPrefixes();
+        refreshRequestLimits(pluginId);
+        timings.record("reload.swap", t);
+        log.info("Switched plugin {} to generation {}", pluginId, next.getGeneration());
+
+        // 3. 排空旧版本的在途请求
+        t = System.nanoTime();
+        long deadline = System.currentTimeMillis() + drainTimeoutMs;
+        while (old.getInFlightRequests().get() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        if (old.getInFlightRequests().get() > 0) {
+            log.warn("Plugin {} generation {} still has {} in-flight request(s) after {} ms, retiring anyway",
+                    pluginId, old.getGeneration(), old.getInFlightRequests().get(), drainTimeoutMs);
+        }
+        timings.record("reload.drain", t);
+
+        // 4. 关闭旧版本（不删除包文件、不修改持久化状态）
+        t = System.nanoTime();
+        retire(old);
+        timings.record("reload.retire", t);
+        timings.record("reload.total", t0);
+        log.info("✅ Plugin reloaded (blue/green): {}", pluginId);
+    }
+
+    /**
+     * 关闭已被替换的旧版本插件
+     */
+    private void retire(PluginContext old) {
+        String pluginId = old.getPluginId();
+        old.transitionTo(PluginStatus.DISABLED);
+        unregisterApiRoutes(old);
+        stopInstance(old, true, "retiring");
+        releaseRuntime(old);
+        staticCache.release(pluginId, old.getGeneration());
+        old.transitionTo(PluginStatus.UNLOADED);
+    }
+
+    /**
+     * 依次调用插件实例的 onDisable（已调用过 onEnable 时）与 onUnload，异常只记录日志
+     */
+    private void stopInstance(PluginContext context, boolean enabled, String phase) {
+        IPlugin instance = context.getPluginInstance();
+        if (instance == null) {
+            return;
+        }
+        if (enabled) {
+            try {
+                instance.onDisable();
+            } catch (Exception e) {
+                log.error("Error in plugin onDisable while {}: {}", phase, context.getPluginId(), e);
+            }
+        }
+        try {
+            instance.onUnload();
+        } catch (Exception e) {
+            log.error("Error in plugin onUnload while {}: {}", phase, context.getPluginId(), e);
+        }
+    }
 
-        // 优先使用已记录的原始包路径（兼容 JAR / ZIP）
+    /**
+     * 定位插件包文件：优先使用已记录的原始包路径（兼容 JAR / ZIP），否则按包类型查找
+     */
+    private String locatePackage(PluginContext context) {
+        String pluginId = context.getPluginId();
         String packagePath = context.getPackageFilePath();
         if (packagePath == null || packagePath.isEmpty() || !Files.exists(Paths.get(packagePath))) {
             // 根据包类型或实际存在情况回退查找
@@ -384,24 +1026,7 @@ public class PluginManager {
                 }
             }
         }
-
-        // 卸载（标记重载过程，避免卸载阶段删除包文件）
-        reloadingIds.add(pluginId);
-        try {
-            unloadPlugin(pluginId);
-        } finally {
-            // 确保标记被清理
-            reloadingIds.remove(pluginId);
-        }
-
-        // 等待资源释放
-        Thread.sleep(500);
-
-        // 重新加载
-        loadPlugin(new File(packagePath));
-
-        // 自动启用
-        enablePlugin(pluginId);
+        return packagePath;
     }
 
     /**
@@ -424,6 +1049,46 @@ public class PluginManager {
         return context;
     }
 
+    /**
+     * 查找已加载的插件上下文，未加载时返回空
+     */
+    Optional<PluginContext> findContext(String pluginId) {
+        return Optional.ofNullable(pluginContexts.get(pluginId));
+    }
+
+    /**
+     * 按插件包文件查找已加载的插件上下文（供插件目录监听使用）
+     */
+    Optional<PluginContext> findContextByPackage(Path packageFile) {
+        Path target = packageFile.toAbsolutePath().normalize();
+        return pluginContexts.values().stream()
+                .filter(c -> c.getPackageFilePath() != null
+                        && Paths.get(c.getPackageFilePath()).toAbsolutePath().normalize().equals(target))
+                .findFirst();
+    }
+
+    /**
+     * 请求进入插件：对当前启用的插件上下文计入在途请求并返回该上下文；插件未启用时返回 null。
+     * 调用方须在请求结束时调用 {@link #exitRequest(PluginContext)}。
+     */
+    public PluginContext enterRequest(String pluginId) {
+        PluginContext context = pluginId == null ? null : pluginContexts.get(pluginId);
+        if (context == null || context.getStatus() != PluginStatus.ENABLED) {
+            return null;
+        }
+        context.getInFlightRequests().incrementAndGet();
+        return context;
+    }
+
+    /**
+     * 请求离开插件
+     */
+    public void exitRequest(PluginContext context) {
+        if (context != null) {
+            context.getInFlightRequests().decrementAndGet();
+        }
+    }
+
     /**
      * 查询插件状态（可选返回）。
      */
@@ -439,37 +1104,179 @@ public class PluginManager {
         return getPluginStatus(pluginId).orElse(null) == PluginStatus.ENABLED;
     }
 
+    /**
+     * 获取插件生命周期各阶段耗时
+     */
+    public List<PluginPhaseTiming> getPluginTimings(String pluginId) {
+        return getContext(pluginId).getTimings().snapshot();
+    }
+
+    /**
+     * 输出插件耗时汇总报告：按阶段聚合所有插件的耗时，并列出加载 + 启用最慢的插件。
+     * 通常在启动自动加载完成后调用。
+     */
+    public void logTimingReport() {
+        if (pluginContexts.isEmpty()) {
+            return;
+        }
+        // phase -> [count, totalNanos, maxNanos]
+        Map<String, long[]> phases = new HashMap<>();
+        Map<String, String> slowestOwner = new HashMap<>();
+        Map<String, Long> pluginCosts = new HashMap<>();
+        for (PluginContext ctx : pluginContexts.values()) {
+            long cost = 0;
+            for (PluginPhaseTiming t : ctx.getTimings().snapshot()) {
+                long[] agg = phases.computeIfAbsent(t.getPhase(), k -> new long[3]);
+                agg[0] += t.getCount();
+                agg[1] += t.getTotalNanos();
+                if (t.getMaxNanos() > agg[2]) {
+                    agg[2] = t.getMaxNanos();
+                    slowestOwner.put(t.getPhase(), ctx.getPluginId());
+                }
+                if ("load.total".equals(t.getPhase()) || "enable.total".equals(t.getPhase())) {
+                    cost += t.getTotalNanos();
+                }
+            }
+            pluginCosts.put(ctx.getPluginId(), cost);
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("Plugin lifecycle timing report (").append(pluginContexts.size()).append(" plugins)\n");
+        phases.entrySet().stream()
+                .filter(e -> !e.getKey().endsWith(".total"))
+                .sorted((a, b) -> Long.compare(b.getValue()[1], a.getValue()[1]))
+                .forEach(e -> sb.append(String.format("  %-26s count=%-4d total=%10.1f ms  max=%9.1f ms (%s)%n",
+                        e.getKey(), e.getValue()[0], e.getValue()[1] / 1e6, e.getValue()[2] / 1e6,
+                        slowestOwner.get(e.getKey()))));
+        sb.append("  Slowest plugins (load + enable):\n");
+        pluginCosts.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(5)
+                .forEach(e -> sb.append(String.format("    %-30s %10.1f ms%n", e.getKey(), e.getValue() / 1e6)));
+        log.info(sb.toString().stripTrailing());
+    }
+
     /**
      * 根据请求路径解析隶属的插件ID（针对 API 路由）。
      * 会根据每个已加载插件的 apiPrefix 进行前缀匹配。
      * 仅在插件被加载（不论启用/禁用）情况下有效。
      */
     public Optional<String> resolvePluginIdByApiPath(String requestPath) {
-        if (requestPath == null) return Optional.empty();
-        String path = requestPath.trim();
-        // 规范化，确保以 "/" 开头
-        if (!path.startsWith("/")) {
-            path = "/" + path;
-        }
+        return Optional.ofNullable(findPluginIdByApiPath(requestPath));
+    }
+
+    /**
+     * 同 {@link #resolvePluginIdByApiPath}，未命中返回 null；基于前缀树快照匹配，不分配对象，供每个请求调用
+     */
+    public String findPluginIdByApiPath(String requestPath) {
+        return apiPrefixes.match(requestPath);
+    }
 
+    /**
+     * 按当前已加载的插件重建 API 前缀树并发布新快照（插件上下文增删或替换后调用）
+     */
+    private synchronized void rebuildApiPrefixes() {
+        Map<String, String> prefixes = new HashMap<>();
         for (PluginContext ctx : pluginContexts.values()) {
-            PluginDescriptor descriptor = ctx.getDescriptor();
-            String apiPrefix = (descriptor.getApi() != null && descriptor.getApi().getPrefix() != null
-                    && !descriptor.getApi().getPrefix().isEmpty())
-                    ? descriptor.getApi().getPrefix()
-                    : "/api/" + descriptor.getId();
-
-            // 统一去掉尾部斜杠
-            if (apiPrefix.endsWith("/")) {
-                apiPrefix = apiPrefix.substring(0, apiPrefix.length() - 1);
+            prefixes.put(ctx.getPluginId(), apiPrefixOf(ctx.getDescriptor()));
+        }
+        List<String> conflicts = new ArrayList<>();
+        apiPrefixes = ApiPrefixTrie.build(prefixes, conflicts);
+        conflicts.forEach(c -> log.warn("Duplicate plugin API prefix, only the first plugin is matched: {}", c));
+    }
+
+    /**
+     * 获取插件的并发隔离舱壁，未限制并发时返回 null
+     */
+    public PluginBulkhead getBulkhead(String pluginId) {
+        return bulkheads.get(pluginId);
+    }
+
+    /**
+     * 设置管理端的并发隔离覆盖配置（持久化到插件状态文件），config 为 null 时清除覆盖、恢复 plugin.yml 中的声明
+     */
+    public void setBulkheadOverride(String pluginId, PluginBulkheadConfig config) {
+        getContext(pluginId);
+        Properties props = loadPluginState(pluginId);
+        setOrRemove(props, "bulkhead.maxConcurrentRequests", config != null ? config.getMaxConcurrentRequests() : null);
+        setOrRemove(props, "bulkhead.queueSize", config != null ? config.getQueueSize() : null);
+        setOrRemove(props, "bulkhead.queueTimeoutMs", config != null ? config.getQueueTimeoutMs() : null);
+        storePluginState(pluginId, props);
+        refreshBulkhead(pluginId);
+    }
+
+    /**
+     * 按当前上下文的描述符刷新插件的并发隔离与限流配置（插件上下文增加或替换后调用）
+     */
+    private void refreshRequestLimits(String pluginId) {
+        refreshBulkhead(pluginId);
+        PluginContext context = pluginContexts.get(pluginId);
+        PluginDescriptor.ApiConfig api = context != null ? context.getDescriptor().getApi() : null;
+        rateLimits.configure(pluginId, api != null ? api.getRateLimit() : null);
+    }
+
+    /**
+     * 按 plugin.yml 声明与管理端覆盖值重建插件的舱壁；配置未变化时保留原实例（在途请求与排队不受影响）
+     */
+    private synchronized void refreshBulkhead(String pluginId) {
+        PluginContext context = pluginContexts.get(pluginId);
+        if (context == null) {
+            bulkheads.remove(pluginId);
+            return;
+        }
+        PluginDescriptor.ApiConfig api = context.getDescriptor().getApi();
+        Properties props = loadPluginState(pluginId);
+        int max = intOverride(props, "bulkhead.maxConcurrentRequests",
+                api != null && api.getMaxConcurrentRequests() != null ? api.getMaxConcurrentRequests() : 0);
+        int queueSize = intOverride(props, "bulkhead.queueSize",
+                api != null && api.getQueueSize() != null ? api.getQueueSize() : 0);
+        long queueTimeoutMs = intOverride(props, "bulkhead.queueTimeoutMs",
+                api != null && api.getQueueTimeoutMs() != null ? api.getQueueTimeoutMs() : defaultQueueTimeoutMs);
+
+        PluginBulkhead current = bulkheads.get(pluginId);
+        if (max <= 0) {
+            if (current != null) {
+                bulkheads.remove(pluginId);
+                log.info("Bulkhead of plugin {} removed", pluginId);
             }
+            return;
+        }
+        if (current != null && current.sameConfig(max, queueSize, queueTimeoutMs)) {
+            return;
+        }
+        bulkheads.put(pluginId, new PluginBulkhead(max, queueSize, queueTimeoutMs, current));
+        log.info("Bulkhead of plugin {}: maxConcurrentRequests={}, queueSize={}, queueTimeoutMs={}",
+                pluginId, max, queueSize, queueTimeoutMs);
+    }
 
-            // 匹配当前请求是否以该前缀开头（完整段匹配）
-            if (path.equals(apiPrefix) || path.startsWith(apiPrefix + "/")) {
-                return Optional.of(descriptor.getId());
+    private static int intOverride(Properties props, String key, long defaultValue) {
+        String v = props.getProperty(key);
+        if (v != null && !v.isBlank()) {
+            try {
+                return Integer.parseInt(v.trim());
+            } catch (NumberFormatException e) {
+                log.warn("Invalid value for {}: {}", key, v);
             }
         }
-        return Optional.empty();
+        return (int) Math.min(Integer.MAX_VALUE, defaultValue);
+    }
+
+    private static void setOrRemove(Properties props, String key, Number value) {
+        if (value == null) {
+            props.remove(key);
+        } else {
+            props.setProperty(key, value.toString());
+        }
+    }
+
+    /**
+     * 插件的 API 前缀：未配置时为 /api/{pluginId}
+     */
+    private static String apiPrefixOf(PluginDescriptor descriptor) {
+        return (descriptor.getApi() != null && descriptor.getApi().getPrefix() != null
+                && !descriptor.getApi().getPrefix().isEmpty())
+                ? descriptor.getApi().getPrefix()
+                : "/api/" + descriptor.getId();
     }
 
     /**
@@ -489,12 +1296,17 @@ public class PluginManager {
             return;
         }
 
-        String apiPrefix = descriptor.getApi() != null ?
-                descriptor.getApi().getPrefix() : "/api/" + descriptor.getId();
+        String apiPrefix = apiPrefixOf(descriptor);
 
+        boolean virtualThreads = handlerExecutors.isEnabledFor(descriptor);
         for (Map.Entry<String, Object> entry : controllers.entrySet()) {
             Object controller = entry.getValue();
-            List<Object> mappings = routeRegistry.registerController(apiPrefix, controller);
+            if (virtualThreads) {
+                handlerExecutors.bind(descriptor.getId(), controller);
+            }
+            List<Object> mappings = routeRegistry.registerController(descriptor.getId(), context.getGeneration(), apiPrefix,
+                    descriptor.getApi() != null ? descriptor.getApi().getCoalesce() : null,
+                    context.getPackageHash(), controller);
 
             // 保存映射信息以便卸载时清理
             mappings.forEach(mapping -> {
@@ -504,8 +1316,8 @@ public class PluginManager {
                 context.getRegisteredMappings().add(info);
             });
 
-            log.info("Registered {} routes for controller: {}",
-                    mappings.size(), controller.getClass().getSimpleName());
+            log.info("Registered {} routes for controller: {}{}",
+                    mappings.size(), controller.getClass().getSimpleName(), virtualThreads ? " (virtual threads)" : "");
         }
     }
 
@@ -513,8 +1325,10 @@ public class PluginManager {
      * 注销 API 路由
      */
     private void unregisterApiRoutes(PluginContext context) {
+        routeRegistry.unregisterRoutes(context.getPluginId(), context.getGeneration());
         for (PluginContext.MappingInfo info : context.getRegisteredMappings()) {
-            routeRegistry.unregisterMapping(info.getMapping());
+            routeRegistry.unregisterCache(info.getHandler());
+            handlerExecutors.unbind(info.getHandler());
         }
         context.getRegisteredMappings().clear();
     }
@@ -523,10 +1337,25 @@ public class PluginManager {
      * 注册静态资源
      */
     private void registerStaticResources(PluginContext context) {
+        String resourceLocation = prepareStaticResources(context);
+        if (resourceLocation == null) {
+            return;
+        }
+        String urlPath = "/plugins/" + context.getPluginId() + "/**";
+        staticResourceRegistry.registerResources(context.getPluginId(), urlPath, resourceLocation);
+        context.getRegisteredResourcePaths().add(urlPath);
+
+        log.info("Registered static resources: {} -> {}", urlPath, resourceLocation);
+    }
+
+    /**
+     * 准备静态资源缓存目录（按包内容哈希复用已有解压），返回资源位置；插件无前端配置时返回 null
+     */
+    private String prepareStaticResources(PluginContext context) {
         PluginDescriptor descriptor = context.getDescriptor();
         if (descriptor.getFrontend() == null) {
             log.info("No frontend config in plugin: {}", descriptor.getId());
-            return;
+            return null;
         }
 
         String basePath = descriptor.getFrontend().getBasePath();
@@ -534,32 +1363,33 @@ public class PluginManager {
             basePath = "/static";
         }
 
-        String urlPath = "/plugins/" + descriptor.getId() + "/**";
+        // 映射模式：前端 ZIP 插件不解压，直接内存映射包文件提供资源；包无法映射时回退到解压
+        if (context.getPackageType() == PluginContext.PackageType.ZIP && "mapped".equalsIgnoreCase(zipMode)
+                && new File(context.getPackageFilePath()).length() < Integer.MAX_VALUE) {
+            try {
+                staticResourceRegistry.validateMappedZip(context.getPackageFilePath());
+                return StaticResourceRegistry.MAPPED_ZIP_PREFIX + context.getPackageFilePath() + "!" + ensureStartsWithSlash(basePath);
+            } catch (IOException e) {
+                log.warn("Cannot map ZIP plugin {}, fallback to extraction: {}", descriptor.getId(), e.getMessage());
+            }
+        }
 
-        // 优化：将插件包内的静态资源解压到平台本地缓存目录（支持 JAR / ZIP）
-        String resourceLocation;
+        // 优化：将插件包内的静态资源解压到平台本地缓存目录（支持 JAR / ZIP），包内容不变时复用
+        String cacheKey = context.getPackageHash() != null ? context.getPackageHash() : "g" + context.getGeneration();
         try {
-            String extractedDir;
-            if (context.getPackageType() == PluginContext.PackageType.ZIP) {
-                extractedDir = extractZipStaticToCache(descriptor.getId(), context.getPackageFilePath(), basePath);
-            } else {
-                extractedDir = extractPluginStaticToCache(descriptor.getId(), basePath);
-            }
-            resourceLocation = "file:" + ensureEndsWithSlash(extractedDir);
+            long t = System.nanoTime();
+            Path cacheDir = staticCache.prepare(descriptor.getId(), cacheKey, context.getGeneration(),
+                    context.getPackageFilePath(), basePath, context.getTimings());
+            context.getTimings().record("enable.static.prepare", t);
+            return "file:" + ensureEndsWithSlash(cacheDir.toString());
         } catch (Exception ex) {
             if (context.getPackageType() == PluginContext.PackageType.JAR) {
                 log.warn("Failed to extract static resources for plugin {}, fallback to jar access: {}",
                         descriptor.getId(), ex.getMessage());
-                resourceLocation = "jar:file:" + findPluginJar(descriptor.getId()) + "!" + ensureStartsWithSlash(basePath) + "/";
-            } else {
-                throw new PluginException("Failed to extract static resources for ZIP plugin: " + descriptor.getId(), ex);
+                return "jar:file:" + context.getPackageFilePath() + "!" + ensureStartsWithSlash(basePath) + "/";
             }
+            throw new PluginException("Failed to extract static resources for ZIP plugin: " + descriptor.getId(), ex);
         }
-
-        staticResourceRegistry.registerResources(descriptor.getId(), urlPath, resourceLocation);
-        context.getRegisteredResourcePaths().add(urlPath);
-
-        log.info("Registered static resources: {} -> {}", urlPath, resourceLocation);
     }
 
     /**
@@ -568,23 +1398,13 @@ public class PluginManager {
     private void unregisterStaticResources(PluginContext context) {
         staticResourceRegistry.unregisterResources(context.getPluginId());
         context.getRegisteredResourcePaths().clear();
-
-        // 同步清理本地缓存的静态资源目录（若存在）
-        try {
-            Path cacheDir = getStaticCacheDir(context.getPluginId());
-            if (Files.exists(cacheDir)) {
-                FileUtils.deleteDirectory(cacheDir.toFile());
-                log.info("Deleted static cache directory for plugin {}: {}", context.getPluginId(), cacheDir);
-            }
-        } catch (Exception ex) {
-            log.warn("Failed to delete static cache directory for plugin {}: {}", context.getPluginId(), ex.getMessage());
-        }
+        // 缓存目录保留，再次启用时直接复用
     }
 
     /**
-     * 注册菜单
+     * 构建插件菜单项
      */
-    private void registerMenu(PluginContext context) {
+    private MenuRegistry.MenuItem buildMenuItem(PluginContext context) {
         PluginDescriptor descriptor = context.getDescriptor();
 
         MenuRegistry.MenuItem item = new MenuRegistry.MenuItem();
@@ -594,8 +1414,7 @@ public class PluginManager {
         item.setIcon((iconStr != null && !iconStr.isEmpty()) ? iconStr : "🔧");
         item.setRoute("/plugin/" + descriptor.getId());
         item.setOrder(0);
-
-        menuRegistry.registerMenu(item);
+        return item;
     }
 
     /**
@@ -606,50 +1425,17 @@ public class PluginManager {
     }
 
     /**
-     * 读取插件描述符
-     */
-    private PluginDescriptor readDescriptor(File jarFile) throws Exception {
-        try (JarFile jar = new JarFile(jarFile)) {
-            JarEntry entry = jar.getJarEntry("META-INF/plugin.yml");
-            if (entry == null) {
-                throw new PluginException("plugin.yml not found in " + jarFile.getName());
-            }
-
-            // 必须在关闭 JarFile 之前关闭其返回的 InputStream，避免 Windows 下 JAR 被占用
-            try (InputStream is = jar.getInputStream(entry)) {
-                return PluginDescriptor.load(is);
-            }
-        }
-    }
-
-    /**
-     * 读取插件描述符（兼容 JAR/ZIP 包）
+     * 读取插件描述符（兼容 JAR/ZIP 包），插件目录内的包复用索引中的解析结果
      */
-    private PluginDescriptor readDescriptorFromArchive(File packageFile) throws Exception {
-        String name = packageFile.getName().toLowerCase();
-        if (name.endsWith(".jar")) {
-            return readDescriptor(packageFile);
-        } else if (name.endsWith(".zip")) {
-            try (ZipFile zip = new ZipFile(packageFile)) {
-                ZipEntry entry = zip.getEntry("META-INF/plugin.yml");
-                if (entry == null) {
-                    throw new PluginException("plugin.yml not found in " + packageFile.getName());
-                }
-                try (InputStream is = zip.getInputStream(entry)) {
-                    return PluginDescriptor.load(is);
-                }
-            }
-        } else {
-            throw new PluginException("Unsupported plugin package type: " + packageFile.getName());
-        }
+    PluginDescriptor readDescriptorFromArchive(File packageFile) throws Exception {
+        return packageIndex.describe(packageFile).getDescriptor();
     }
 
     /**
      * 公开方法：从 JAR 内部的描述文件解析插件ID
      */
     public String resolvePluginIdFromJar(File jarFile) throws Exception {
-        PluginDescriptor descriptor = readDescriptor(jarFile);
-        return descriptor.getId();
+        return PluginPackageIndex.readDescriptor(jarFile).getId();
     }
 
     /**
@@ -673,59 +1459,29 @@ public class PluginManager {
     }
 
     /**
-     * 查找插件 JAR 文件
+     * 查找插件 JAR 文件（基于包索引）
      */
     private String findPluginJar(String pluginId) {
-        try (Stream<Path> stream = Files.list(Paths.get(pluginDir))) {
-            return stream
-                    .filter(p -> p.toString().endsWith(".jar"))
-                    .filter(p -> {
-                        try {
-                            File file = p.toFile();
-                            PluginDescriptor desc = readDescriptor(file);
-                            return desc.getId().equals(pluginId);
-                        } catch (Exception e) {
-                            return false;
-                        }
-                    })
-                    .findFirst()
-                    .map(Path::toString)
-                    .orElseThrow(() -> new PluginException("JAR not found for plugin: " + pluginId));
-        } catch (IOException e) {
-            throw new PluginException("Failed to search plugin JAR", e);
+        PluginPackageIndex.Entry entry = packageIndex.findJar(pluginId);
+        if (entry == null) {
+            throw new PluginException("JAR not found for plugin: " + pluginId);
         }
+        return entry.getPath().toString();
     }
 
     /**
-     * 查找插件 ZIP 文件（用于前端-only 插件）。
+     * 查找插件 ZIP 文件（用于前端-only 插件，基于包索引）。
      */
     private String findPluginZip(String pluginId) {
-        try (Stream<Path> stream = Files.list(Paths.get(pluginDir))) {
-            return stream
-                    .filter(p -> p.toString().endsWith(".zip"))
-                    .filter(p -> {
-                        try {
-                            File file = p.toFile();
-                            PluginDescriptor desc = readDescriptorFromArchive(file);
-                            return desc.getId().equals(pluginId);
-                        } catch (Exception e) {
-                            return false;
-                        }
-                    })
-                    .findFirst()
-                    .map(Path::toString)
-                    .orElseThrow(() -> new PluginException("ZIP not found for plugin: " + pluginId));
-        } catch (IOException e) {
-            throw new PluginException("Failed to search plugin ZIP", e);
+        PluginPackageIndex.Entry entry = packageIndex.findZip(pluginId);
+        if (entry == null) {
+            throw new PluginException("ZIP not found for plugin: " + pluginId);
         }
+        return entry.getPath().toString();
     }
 
     // ===================== 静态资源提取与缓存 =====================
 
-    private Path getStaticCacheDir(String pluginId) {
-        return Paths.get("data/static-cache/" + pluginId);
-    }
-
     private String ensureEndsWithSlash(String path) {
         if (path == null || path.isEmpty()) return path;
         return path.endsWith("/") || path.endsWith("\\") ? path : path + "/";
@@ -736,110 +1492,6 @@ public class PluginManager {
         return path.startsWith("/") ? path : "/" + path;
     }
 
-    /**
-     * 将插件 JAR 中 basePath 下的静态资源解压至本地缓存目录，返回缓存目录绝对路径。
-     */
-    private String extractPluginStaticToCache(String pluginId, String basePath) throws IOException {
-        String jarPath = findPluginJar(pluginId);
-        String normBase = basePath == null ? "static" : basePath;
-        if (normBase.startsWith("/")) normBase = normBase.substring(1);
-        if (!normBase.endsWith("/")) normBase = normBase + "/";
-
-        Path cacheDir = getStaticCacheDir(pluginId);
-        Files.createDirectories(cacheDir);
-
-        // 先清空旧缓存目录，避免遗留脏文件
-        try {
-            if (Files.exists(cacheDir)) {
-                FileUtils.cleanDirectory(cacheDir.toFile());
-            }
-        } catch (IOException ignore) {
-            // 清空失败不影响后续覆盖写入
-        }
-
-        try (JarFile jar = new JarFile(jarPath)) {
-            Enumeration<JarEntry> entries = jar.entries();
-            while (entries.hasMoreElements()) {
-                JarEntry entry = entries.nextElement();
-                String name = entry.getName();
-                if (!name.startsWith(normBase)) {
-                    continue;
-                }
-                String relative = name.substring(normBase.length());
-                if (relative.isEmpty()) {
-                    continue;
-                }
-                // 基础的路径穿越防护
-                if (relative.contains("..") || relative.startsWith("/")) {
-                    continue;
-                }
-
-                Path outPath = cacheDir.resolve(relative).normalize();
-                if (!outPath.startsWith(cacheDir)) {
-                    // 防止逃逸
-                    continue;
-                }
-
-                if (entry.isDirectory()) {
-                    Files.createDirectories(outPath);
-                } else {
-                    Files.createDirectories(outPath.getParent());
-                    try (InputStream is = jar.getInputStream(entry)) {
-                        Files.copy(is, outPath, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
-                    }
-                }
-            }
-        }
-
-        return cacheDir.toAbsolutePath().toString();
-    }
-
-    /**
-     * 将 ZIP 插件包中 basePath 下的静态资源解压至本地缓存目录，返回缓存目录绝对路径。
-     */
-    private String extractZipStaticToCache(String pluginId, String zipPath, String basePath) throws IOException {
-        String normBase = basePath == null ? "static" : basePath;
-        if (normBase.startsWith("/")) normBase = normBase.substring(1);
-        if (!normBase.endsWith("/")) normBase = normBase + "/";
-
-        Path cacheDir = getStaticCacheDir(pluginId);
-        Files.createDirectories(cacheDir);
-
-        try {
-            if (Files.exists(cacheDir)) {
-                FileUtils.cleanDirectory(cacheDir.toFile());
-            }
-        } catch (IOException ignore) {
-        }
-
-        try (ZipFile zip = new ZipFile(zipPath)) {
-            Enumeration<? extends ZipEntry> entries = zip.entries();
-            while (entries.hasMoreElements()) {
-                ZipEntry entry = entries.nextElement();
-                String name = entry.getName();
-                if (!name.startsWith(normBase)) {
-                    continue;
-                }
-                String relative = name.substring(normBase.length());
-                if (relative.isEmpty()) continue;
-                if (relative.contains("..") || relative.startsWith("/")) continue;
-
-                Path outPath = cacheDir.resolve(relative).normalize();
-                if (!outPath.startsWith(cacheDir)) continue;
-
-                if (entry.isDirectory()) {
-                    Files.createDirectories(outPath);
-                } else {
-                    Files.createDirectories(outPath.getParent());
-                    try (InputStream is = zip.getInputStream(entry)) {
-                        Files.copy(is, outPath, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
-                    }
-                }
-            }
-        }
-        return cacheDir.toAbsolutePath().toString();
-    }
-
     // ===================== 文件删除重试（Windows 友好） =====================
     private boolean deleteWithRetry(File file, int attempts, long sleepMillis) {
         if (file == null) return false;
@@ -864,7 +1516,7 @@ public class PluginManager {
     /**
      * 读取持久化的插件启用状态；当没有记录时，默认返回 true（即默认启用）。
      */
-    private boolean readPersistedEnabledOrDefaultTrue(String pluginId) {
+    boolean readPersistedEnabledOrDefaultTrue(String pluginId) {
         try {
             Path stateFile = getPluginStateFile(pluginId);
             if (!Files.exists(stateFile)) {
@@ -907,6 +1559,31 @@ public class PluginManager {
         }
     }
 
+    private Properties loadPluginState(String pluginId) {
+        Properties props = new Properties();
+        Path stateFile = getPluginStateFile(pluginId);
+        if (Files.exists(stateFile)) {
+            try (InputStream is = Files.newInputStream(stateFile)) {
+                props.load(is);
+            } catch (IOException e) {
+                log.warn("Failed to read persisted state for plugin {}: {}", pluginId, e.getMessage());
+            }
+        }
+        return props;
+    }
+
+    private void storePluginState(String pluginId, Properties props) {
+        Path stateFile = getPluginStateFile(pluginId);
+        try {
+            Files.createDirectories(stateFile.getParent());
+            try (OutputStream os = Files.newOutputStream(stateFile, java.nio.file.StandardOpenOption.CREATE, java.nio.file.StandardOpenOption.TRUNCATE_EXISTING)) {
+                props.store(os, "Plugin state for " + pluginId);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     private Path getPluginStateFile(String pluginId) {
         return Paths.get("config", "plugins", pluginId, "plugin-state.properties");
     }
@@ -950,6 +1627,7 @@ public class PluginManager {
         dto.setStatus(context.getStatus().name());
         dto.setLoadTime(context.getLoadTime());
         dto.setStartTime(context.getStartTime());
+        dto.setErrorMessage(context.getErrorMessage());
 
         if (desc.getFrontend() != null && desc.getFrontend().getEntry() != null) {
             dto.setFrontendEntry("/plugins/" + desc.getId() +
@@ -960,6 +1638,14 @@ public class PluginManager {
             dto.setApiPrefix(desc.getApi().getPrefix());
         }
 
+        PluginBulkhead bulkhead = bulkheads.get(desc.getId());
+        if (bulkhead != null) {
+            dto.setMaxConcurrentRequests(bulkhead.getMaxConcurrentRequests());
+            dto.setAvailablePermits(bulkhead.getAvailablePermits());
+            dto.setQueuedRequests(bulkhead.getQueuedRequests());
+            dto.setRejectedRequests(bulkhead.getRejectedRequests());
+        }
+
         // 设置标签（来自状态文件的最终标签；若无则回退到描述符）
         try {
             dto.setTags(getPluginTags(desc.getId()));
@@ -0,0 +1,300 @@
+package com.hxuanyu.funnytoolbox.plugin.core;
+
+import com.hxuanyu.funnytoolbox.plugin.model.PluginDescriptor;
+import com.hxuanyu.funnytoolbox.plugin.model.PluginException;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * 插件包索引
+ * 以插件ID为键维护插件目录中 JAR/ZIP 包的路径、大小、修改时间、内容哈希与解析后的描述符，
+ * 查找插件包时无需逐个打开目录下的压缩包解析 plugin.yml。
+ * 首次使用时全量构建，之后在加载、安装、删除时增量更新：
+ * - 命中的条目若大小或修改时间与磁盘不一致，会重新解析该文件；
+ * - 未命中时仅当插件目录自身的修改时间变化（有文件新增/删除）才会对目录做一次增量对账。
+ */
+@Component
+@Slf4j
+public class PluginPackageIndex {
+
+    @Value("${platform.plugin.dir:./plugins}")
+    private String pluginDir;
+
+    private final Map<Path, Entry> byPath = new ConcurrentHashMap<>();
+    private final Map<String, Entry> jarsById = new ConcurrentHashMap<>();
+    private final Map<String, Entry> zipsById = new ConcurrentHashMap<>();
+
+    private volatile boolean built;
+    // 最近一次对账时插件目录的修改时间
+    private volatile long dirModified = -1;
+
+    /**
+     * 索引条目
+     */
+    @Data
+    public static class Entry {
+        private Path path;
+        private long size;
+        private long lastModified;
+        private String contentHash;     // SHA-256（十六进制）
+        private PluginDescriptor descriptor;
+        private PluginContext.PackageType type;
+
+        public String getPluginId() {
+            return descriptor.getId();
+        }
+    }
+
+    /**
+     * 全量重建索引
+     */
+    public synchronized void rebuild() {
+        byPath.clear();
+        jarsById.clear();
+        zipsById.clear();
+        reconcile();
+        built = true;
+        log.info("Plugin package index built: {} package(s) in {}", byPath.size(), baseDir());
+    }
+
+    /**
+     * 按插件ID查找 JAR 包，未找到返回 null
+     */
+    public Entry findJar(String pluginId) {
+        return find(jarsById, pluginId);
+    }
+
+    /**
+     * 按插件ID查找 ZIP 包，未找到返回 null
+     */
+    public Entry findZip(String pluginId) {
+        return find(zipsById, pluginId);
+    }
+
+    /**
+     * 获取某个包文件的索引条目：位于插件目录内的文件会被索引（已是最新时直接复用），
+     * 目录外的文件（如上传的临时文件）仅解析不入索引。
+     */
+    public Entry describe(File file) throws IOException {
+        Path path = file.toPath().toAbsolutePath().normalize();
+        if (!path.startsWith(baseDir())) {
+            return createEntry(path);
+        }
+        ensureBuilt();
+        Entry entry = byPath.get(path);
+        if (entry != null && isFresh(entry)) {
+            return entry;
+        }
+        return update(path);
+    }
+
+    /**
+     * 增量更新单个包文件的索引（新增或内容变化）
+     */
+    public synchronized Entry update(Path file) throws IOException {
+        Path path = file.toAbsolutePath().normalize();
+        Entry existed = byPath.get(path);
+        if (existed != null && isFresh(existed)) {
+            return existed;
+        }
+        Entry entry = createEntry(path);
+        if (existed != null) {
+            unlink(existed);
+        }
+        byPath.put(path, entry);
+        (entry.getType() == PluginContext.PackageType.JAR ? jarsById : zipsById).put(entry.getPluginId(), entry);
+        log.debug("Indexed plugin package {} -> {}", path.getFileName(), entry.getPluginId());
+        return entry;
+    }
+
+    /**
+     * 从索引中移除某个包文件（删除/卸载后调用）
+     */
+    public synchronized void remove(Path file) {
+        Entry removed = byPath.remove(file.toAbsolutePath().normalize());
+        if (removed != null) {
+            unlink(removed);
+            log.debug("Removed plugin package {} from index", removed.getPath().getFileName());
+        }
+    }
+
+    /**
+     * 按路径获取已索引的条目（不触发解析），未索引返回 null
+     */
+    public Entry get(Path file) {
+        ensureBuilt();
+        return byPath.get(file.toAbsolutePath().normalize());
+    }
+
+    private Entry find(Map<String, Entry> byId, String pluginId) {
+        ensureBuilt();
+        Entry entry = byId.get(pluginId);
+        if (entry != null) {
+            if (isFresh(entry)) {
+                return entry;
+            }
+            // 文件被替换或删除，校正该条目
+            try {
+                Entry updated = Files.exists(entry.getPath()) ? update(entry.getPath()) : null;
+                if (updated == null) {
+                    remove(entry.getPath());
+                }
+                return updated != null && updated.getPluginId().equals(pluginId) ? updated : null;
+            } catch (IOException | RuntimeException e) {
+                log.warn("Failed to re-index plugin package {}: {}", entry.getPath(), e.getMessage());
+                remove(entry.getPath());
+                return null;
+            }
+        }
+        // 未命中：仅在目录内容有增删时对账一次
+        if (dirModified != currentDirModified()) {
+            synchronized (this) {
+                reconcile();
+            }
+            return byId.get(pluginId);
+        }
+        return null;
+    }
+
+    private void ensureBuilt() {
+        if (!built) {
+            synchronized (this) {
+                if (!built) {
+                    rebuild();
+                }
+            }
+        }
+    }
+
+    /**
+     * 与插件目录对账：移除已不存在的文件，索引新增或变化的文件
+     */
+    private void reconcile() {
+        Path base = baseDir();
+        long modified = currentDirModified();
+        if (!Files.isDirectory(base)) {
+            dirModified = modified;
+            return;
+        }
+        byPath.values().stream()
+                .filter(e -> !Files.exists(e.getPath()))
+                .map(Entry::getPath)
+                .toList()
+                .forEach(this::remove);
+        try (Stream<Path> stream = Files.list(base)) {
+            stream.filter(PluginPackageIndex::isPackageFile).forEach(p -> {
+                try {
+                    update(p);
+                } catch (Exception e) {
+                    log.warn("Skip invalid plugin package {}: {}", p.getFileName(), e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            throw new PluginException("Failed to scan plugin directory", e);
+        }
+        dirModified = modified;
+    }
+
+    private void unlink(Entry entry) {
+        Map<String, Entry> byId = entry.getType() == PluginContext.PackageType.JAR ? jarsById : zipsById;
+        byId.remove(entry.getPluginId(), entry);
+    }
+
+    private boolean isFresh(Entry entry) {
+        try {
+            return Files.size(entry.getPath()) == entry.getSize()
+                    && Files.getLastModifiedTime(entry.getPath()).toMillis() == entry.getLastModified();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private long currentDirModified() {
+        try {
+            return Files.getLastModifiedTime(baseDir()).toMillis();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private Path baseDir() {
+        return Paths.get(pluginDir).toAbsolutePath().normalize();
+    }
+
+    private Entry createEntry(Path path) throws IOException {
+        File file = path.toFile();
+        Entry entry = new Entry();
+        entry.setPath(path);
+        entry.setSize(Files.size(path));
+        entry.setLastModified(Files.getLastModifiedTime(path).toMillis());
+        entry.setContentHash(hash(path));
+        entry.setDescriptor(readDescriptor(file));
+        entry.setType(file.getName().toLowerCase().endsWith(".jar") ? PluginContext.PackageType.JAR : PluginContext.PackageType.ZIP);
+        return entry;
+    }
+
+    static boolean isPackageFile(Path path) {
+        String name = path.getFileName().toString().toLowerCase();
+        return (name.endsWith(".jar") || name.endsWith(".zip")) && Files.isRegularFile(path);
+    }
+
+    /**
+     * 读取插件包（JAR/ZIP）中的 META-INF/plugin.yml
+     */
+    static PluginDescriptor readDescriptor(File packageFile) throws IOException {
+        String name = packageFile.getName().toLowerCase();
+        if (!name.endsWith(".jar") && !name.endsWith(".zip")) {
+            throw new PluginException("Unsupported plugin package type: " + packageFile.getName());
+        }
+        try (ZipFile zip = new ZipFile(packageFile)) {
+            ZipEntry entry = zip.getEntry("META-INF/plugin.yml");
+            if (entry == null) {
+                throw new PluginException("plugin.yml not found in " + packageFile.getName());
+            }
+            // 必须在关闭 ZipFile 之前关闭其返回的 InputStream，避免 Windows 下文件被占用
+            try (InputStream is = zip.getInputStream(entry)) {
+                PluginDescriptor descriptor = PluginDescriptor.load(is);
+                if (descriptor.getId() == null || descriptor.getId().isBlank()) {
+                    throw new PluginException("Plugin id is missing in " + packageFile.getName());
+                }
+                return descriptor;
+            }
+        }
+    }
+
+    /**
+     * 计算文件内容的 SHA-256
+     */
+    static String hash(Path path) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[64 * 1024];
+            try (InputStream is = Files.newInputStream(path)) {
+                int n;
+                while ((n = is.read(buffer)) > 0) {
+                    digest.update(buffer, 0, n);
+                }
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.hxuanyu.funnytoolbox.plugin.core;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 插件限流器（GCRA，等价于令牌桶）
+ * 每个桶只保存一个"理论到达时间"（TAT），请求到达时以 CAS 推进 TAT，不加锁；
+ * 已存在的桶在请求路径上不分配对象。TAT 早于当前时刻的桶与新桶等价，可随时无损清除。
+ * 配置不可变，配置变化时整体替换。
+ */
+public class PluginRateLimiter {
+
+    /**
+     * 限流维度
+     */
+    public enum Per {
+        PLUGIN, IP, SESSION;
+
+        static Per parse(String value) {
+            if (value == null || value.isBlank()) {
+                return PLUGIN;
+            }
+            return Per.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private final double permitsPerSecond;
+    private final int burst;
+    private final Per per;
+
+    // 相邻两个请求的理论间隔与允许的突发容量（纳秒）
+    private final long emissionNanos;
+    private final long toleranceNanos;
+
+    // 插件维度共享的桶
+    private final AtomicLong pluginBucket;
+    // 客户端维度：IP 或会话ID -> 桶
+    private final Map<String, AtomicLong> clientBuckets = new ConcurrentHashMap<>();
+
+    PluginRateLimiter(double permitsPerSecond, int burst, Per per) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = Math.max(1, burst);
+        this.per = per;
+        this.emissionNanos = Math.max(1, (long) (1_000_000_000L / permitsPerSecond));
+        this.toleranceNanos = emissionNanos * this.burst;
+        this.pluginBucket = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * 尝试放行一个请求：放行返回 0，否则返回需等待的纳秒数
+     */
+    public long tryAcquire(HttpServletRequest request) {
+        return tryAcquire(bucketOf(request), System.nanoTime());
+    }
+
+    private long tryAcquire(AtomicLong bucket, long now) {
+        while (true) {
+            long tat = bucket.get();
+            long next = (tat - now > 0 ? tat : now) + emissionNanos;
+            long wait = next - now - toleranceNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.compareAndSet(tat, next)) {
+                return 0;
+            }
+        }
+    }
+
+    private AtomicLong bucketOf(HttpServletRequest request) {
+        if (per == Per.PLUGIN) {
+            return pluginBucket;
+        }
+        String key = null;
+        if (per == Per.SESSION) {
+            HttpSession session = request.getSession(false);
+            key = session != null ? session.getId() : null;
+        }
+        if (key == null) {
+            key = request.getRemoteAddr();
+        }
+        AtomicLong bucket = clientBuckets.get(key);
+        if (bucket == null) {
+            bucket = clientBuckets.computeIfAbsent(key, k -> new AtomicLong(System.nanoTime()));
+        }
+        return bucket;
+    }
+
+    /**
+     * 清除已完全恢复的客户端桶，返回清除数量
+     */
+    int evictIdleBuckets() {
+        long now = System.nanoTime();
+        int before = clientBuckets.size();
+        clientBuckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+        return before - clientBuckets.size();
+    }
+
+    boolean sameConfig(double permitsPerSecond, int burst, Per per) {
+        return this.permitsPerSecond == permitsPerSecond && this.burst == Math.max(1, burst) && this.per == per;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    /**
+     * 突发容量完全恢复所需的秒数（RateLimit-Policy 的窗口）
+     */
+    public long getWindowSeconds() {
+        return Math.max(1, (toleranceNanos + 999_999_999L) / 1_000_000_000L);
+    }
+
+    public Per getPer() {
+        return per;
+    }
+
+    int getClientBucketCount() {
+        return clientBuckets.size();
+    }
+}
@@ -0,0 +1,105 @@
+package com.hxuanyu.funnytoolbox.plugin.core;
+
+import com.hxuanyu.funnytoolbox.plugin.model.PluginDescriptor;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 插件限流器注册表
+ * 按 plugin.yml api.rateLimit 为插件创建限流器（由 PluginAccessFilter 在请求前检查），
+ * 并定期清除已完全恢复的客户端桶，避免按 IP / 会话限流时桶无限增长。
+ */
+@Component
+@Slf4j
+public class PluginRateLimits {
+
+    @Value("${platform.plugin.rate-limit.evict-interval-ms:60000}")
+    private long evictIntervalMs;
+
+    // pluginId -> 限流器，仅包含声明了限流的插件
+    private final Map<String, PluginRateLimiter> limiters = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService evictExecutor;
+
+    @PostConstruct
+    public void start() {
+        evictExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "plugin-rate-limit-evict");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = Math.max(1000, evictIntervalMs);
+        evictExecutor.scheduleWithFixedDelay(this::evictIdleBuckets, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (evictExecutor != null) {
+            evictExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 获取插件的限流器，未声明限流时返回 null
+     */
+    public PluginRateLimiter get(String pluginId) {
+        return limiters.get(pluginId);
+    }
+
+    /**
+     * 按描述符配置插件限流；配置未变化时保留原限流器（桶状态不丢失）
+     */
+    public synchronized void configure(String pluginId, PluginDescriptor.RateLimitConfig config) {
+        if (config == null || config.getPermitsPerSecond() == null || config.getPermitsPerSecond() <= 0) {
+            if (limiters.remove(pluginId) != null) {
+                log.info("Rate limit of plugin {} removed", pluginId);
+            }
+            return;
+        }
+        PluginRateLimiter.Per per;
+        try {
+            per = PluginRateLimiter.Per.parse(config.getPer());
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid rate limit dimension '{}' for plugin {}, fallback to plugin", config.getPer(), pluginId);
+            per = PluginRateLimiter.Per.PLUGIN;
+        }
+        double permitsPerSecond = config.getPermitsPerSecond();
+        int burst = config.getBurst() != null ? config.getBurst() : 1;
+        PluginRateLimiter current = limiters.get(pluginId);
+        if (current != null && current.sameConfig(permitsPerSecond, burst, per)) {
+            return;
+        }
+        limiters.put(pluginId, new PluginRateLimiter(permitsPerSecond, burst, per));
+        log.info("Rate limit of plugin {}: permitsPerSecond={}, burst={}, per={}", pluginId, permitsPerSecond, burst, per);
+    }
+
+    /**
+     * 移除插件的限流器（插件卸载后调用）
+     */
+    public void remove(String pluginId) {
+        limiters.remove(pluginId);
+    }
+
+    void evictIdleBuckets() {
+        try {
+            limiters.forEach((pluginId, limiter) -> {
+                int evicted = limiter.evictIdleBuckets();
+                if (evicted > 0) {
+                    log.debug("Evicted {} idle rate limit buckets of plugin {}, {} remaining",
+                            evicted, pluginId, limiter.getClientBucketCount());
+                }
+            });
+        } catch (Exception e) {
+            log.warn("Failed to evict idle rate limit buckets: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.hxuanyu.funnytoolbox.plugin.core;
+
+import com.hxuanyu.funnytoolbox.plugin.model.PluginDescriptor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 启动期插件加载器
+ * 根据 plugin.yml 中的 dependencies 构建依赖图，按依赖层级（wave）分批处理：
+ * 同一层级内的插件在有界线程池中并行加载（读取描述符、创建类加载器、刷新 Spring 上下文、onLoad），
+ * 整层加载完成后再并行启用，保证被依赖的插件先于依赖方可用。
+ * 各插件的生命周期操作由 PluginManager 的插件级锁保护，可与其它生命周期操作安全并存。
+ * 懒加载插件只注册占位上下文，首次请求时才真正加载；被非懒加载插件依赖的懒加载插件会随之立即加载。
+ */
+@Slf4j
+class PluginStartupLoader {
+
+    private final PluginManager pluginManager;
+    private final int parallelism;
+
+    PluginStartupLoader(PluginManager pluginManager, int parallelism) {
+        this.pluginManager = pluginManager;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * 待加载的插件包
+     */
+    private static class Candidate {
+        private final File file;
+        private final PluginDescriptor descriptor;
+        // 读取描述符耗时
+        private long descriptorNanos;
+        // 单个插件加载 + 启用的累计耗时（用于估算串行耗时）
+        private long costNanos;
+
+        Candidate(File file, PluginDescriptor descriptor) {
+            this.file = file;
+            this.descriptor = descriptor;
+        }
+    }
+
+    /**
+     * 加载并按持久化状态启用给定的插件包
+     */
+    void load(File[] pkgFiles) {
+        long begin = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, pkgFiles.length), new LoaderThreadFactory());
+        try {
+            Map<String, Candidate> candidates = readCandidates(pkgFiles, executor);
+            List<List<String>> waves = buildWaves(candidates);
+            Set<String> lazyIds = resolveLazy(candidates);
+
+            Set<String> failed = new HashSet<>();
+            int loaded = 0;
+            int lazy = 0;
+            int waveNo = 0;
+            for (List<String> wave : waves) {
+                waveNo++;
+                List<String> ready = new ArrayList<>();
+                for (String id : wave) {
+                    String failedDep = firstFailedDependency(candidates.get(id).descriptor, failed);
+                    if (failedDep != null) {
+                        log.error("Skip plugin {} because its dependency {} failed to load", id, failedDep);
+                        failed.add(id);
+                    } else {
+                        ready.add(id);
+                    }
+                }
+                log.info("Loading plugin wave {}/{}: {}", waveNo, waves.size(), ready);
+
+                // 0. 懒加载插件仅注册占位
+                for (Iterator<String> it = ready.iterator(); it.hasNext(); ) {
+                    String id = it.next();
+                    if (!lazyIds.contains(id)) {
+                        continue;
+                    }
+                    it.remove();
+                    Candidate candidate = candidates.get(id);
+                    try {
+                        pluginManager.registerPlaceholder(candidate.file, candidate.descriptor);
+                        lazy++;
+                    } catch (Exception e) {
+                        log.error("Failed to register lazy plugin: {}", candidate.file.getName(), e);
+                        failed.add(id);
+                    }
+                }
+
+                // 1. 并行加载本层插件
+                Map<String, Future<?>> futures = new LinkedHashMap<>();
+                for (String id : ready) {
+                    Candidate candidate = candidates.get(id);
+                    futures.put(id, executor.submit(() -> {
+                        long t0 = System.nanoTime();
+                        try {
+                            PluginContext context = pluginManager.preparePlugin(candidate.file, candidate.descriptor, candidate.descriptorNanos);
+                            pluginManager.registerPreparedPlugin(context);
+                            context.getTimings().recordNanos("load.total", candidate.descriptorNanos + System.nanoTime() - t0);
+                        } finally {
+                            candidate.costNanos += System.nanoTime() - t0;
+                        }
+                        return null;
+                    }));
+                }
+                List<String> loadedInWave = new ArrayList<>();
+                for (Map.Entry<String, Future<?>> entry : futures.entrySet()) {
+                    try {
+                        entry.getValue().get();
+                        loadedInWave.add(entry.getKey());
+                    } catch (Exception e) {
+                        Throwable cause = e.getCause() != null ? e.getCause() : e;
+                        log.error("Failed to load plugin: {}", candidates.get(entry.getKey()).file.getName(), cause);
+                        failed.add(entry.getKey());
+                    }
+                }
+                loaded += loadedInWave.size();
+
+                // 2. 本层全部加载完成后再并行启用，确保下一层的依赖已就绪
+                Map<String, Future<?>> enables = new LinkedHashMap<>();
+                for (String id : loadedInWave) {
+                    if (!pluginManager.readPersistedEnabledOrDefaultTrue(id)) {
+                        log.info("Plugin {} is marked as disabled (persisted). Skip auto enable.", id);
+                        continue;
+                    }
+                    Candidate candidate = candidates.get(id);
+                    enables.put(id, executor.submit(() -> {
+                        long t0 = System.nanoTime();
+                        try {
+                            pluginManager.enablePlugin(id);
+                        } finally {
+                            candidate.costNanos += System.nanoTime() - t0;
+                        }
+                        return null;
+                    }));
+                }
+                for (Map.Entry<String, Future<?>> entry : enables.entrySet()) {
+                    try {
+                        entry.getValue().get();
+                    } catch (Exception e) {
+                        Throwable cause = e.getCause() != null ? e.getCause() : e;
+                        log.error("Failed to enable plugin: {}", entry.getKey(), cause);
+                        failed.add(entry.getKey());
+                    }
+                }
+            }
+
+            long wallNanos = System.nanoTime() - begin;
+            long serialNanos = candidates.values().stream().mapToLong(c -> c.costNanos).sum();
+            log.info("Plugin auto-load finished: {} loaded, {} lazy, {} failed, {} wave(s), parallelism {}. " +
+                            "Wall time {} ms, serial estimate {} ms, saved {} ms",
+                    loaded, lazy, failed.size(), waves.size(), parallelism,
+                    TimeUnit.NANOSECONDS.toMillis(wallNanos),
+                    TimeUnit.NANOSECONDS.toMillis(serialNanos),
+                    TimeUnit.NANOSECONDS.toMillis(Math.max(0, serialNanos - wallNanos)));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * 并行读取所有插件包的描述符，同一插件ID出现多次时仅保留第一个
+     */
+    private Map<String, Candidate> readCandidates(File[] pkgFiles, ExecutorService executor) {
+        List<Future<Candidate>> futures = new ArrayList<>();
+        for (File pkgFile : pkgFiles) {
+            futures.add(executor.submit(() -> {
+                long t0 = System.nanoTime();
+                Candidate candidate = new Candidate(pkgFile, pluginManager.readDescriptorFromArchive(pkgFile));
+                candidate.descriptorNanos = System.nanoTime() - t0;
+                candidate.costNanos = candidate.descriptorNanos;
+                return candidate;
+            }));
+        }
+
+        Map<String, Candidate> candidates = new LinkedHashMap<>();
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                Candidate candidate = futures.get(i).get();
+                String id = candidate.descriptor.getId();
+                Candidate existed = candidates.putIfAbsent(id, candidate);
+                if (existed != null) {
+                    log.warn("Duplicate plugin id {} in {} and {}, keep the former", id,
+                            existed.file.getName(), candidate.file.getName());
+                }
+            } catch (Exception e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                log.error("Failed to load plugin: {}", pkgFiles[i].getName(), cause);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * 拓扑排序（Kahn 算法），返回按依赖层级划分的插件ID列表。
+     * 依赖缺失或存在循环依赖的插件不会出现在结果中。
+     */
+    private List<List<String>> buildWaves(Map<String, Candidate> candidates) {
+        Map<String, Integer> inDegree = new HashMap<>();
+        Map<String, List<String>> dependents = new HashMap<>();
+
+        for (Candidate candidate : candidates.values()) {
+            String id = candidate.descriptor.getId();
+            Set<String> deps = dependencyIds(candidate.descriptor);
+            List<String> missing = deps.stream().filter(d -> !candidates.containsKey(d)).toList();
+            if (!missing.isEmpty()) {
+                log.error("Skip plugin {} because of missing dependencies: {}", id, missing);
+                continue;
+            }
+            inDegree.put(id, deps.size());
+            for (String dep : deps) {
+                dependents.computeIfAbsent(dep, k -> new ArrayList<>()).add(id);
+            }
+        }
+
+        // 依赖缺失的插件被跳过后，其依赖方同样无法加载
+        Deque<String> skipped = new ArrayDeque<>();
+        candidates.keySet().stream().filter(id -> !inDegree.containsKey(id)).forEach(skipped::add);
+        while (!skipped.isEmpty()) {
+            for (String dependent : dependents.getOrDefault(skipped.poll(), List.of())) {
+                if (inDegree.remove(dependent) != null) {
+                    log.error("Skip plugin {} because one of its dependencies was skipped", dependent);
+                    skipped.add(dependent);
+                }
+            }
+        }
+
+        List<List<String>> waves = new ArrayList<>();
+        List<String> current = inDegree.entrySet().stream()
+                .filter(e -> e.getValue() == 0)
+                .map(Map.Entry::getKey)
+                .sorted()
+                .toList();
+        Set<String> placed = new HashSet<>();
+        while (!current.isEmpty()) {
+            waves.add(current);
+            placed.addAll(current);
+            List<String> next = new ArrayList<>();
+            for (String id : current) {
+                for (String dependent : dependents.getOrDefault(id, List.of())) {
+                    if (inDegree.containsKey(dependent) && inDegree.merge(dependent, -1, Integer::sum) == 0) {
+                        next.add(dependent);
+                    }
+                }
+            }
+            Collections.sort(next);
+            current = next;
+        }
+
+        List<String> cyclic = inDegree.keySet().stream().filter(id -> !placed.contains(id)).sorted().toList();
+        if (!cyclic.isEmpty()) {
+            log.error("Skip plugins with circular dependencies: {}", cyclic);
+        }
+        return waves;
+    }
+
+    /**
+     * 计算实际懒加载的插件：声明为懒加载、且不被任何立即加载的插件（直接或间接）依赖
+     */
+    private Set<String> resolveLazy(Map<String, Candidate> candidates) {
+        Set<String> lazyIds = new HashSet<>();
+        candidates.forEach((id, c) -> {
+            if (pluginManager.isLazy(c.descriptor)) {
+                lazyIds.add(id);
+            }
+        });
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Candidate candidate : candidates.values()) {
+                if (lazyIds.contains(candidate.descriptor.getId())) {
+                    continue;
+                }
+                for (String dep : dependencyIds(candidate.descriptor)) {
+                    if (lazyIds.remove(dep)) {
+                        log.info("Plugin {} is required by {} and will be loaded eagerly", dep, candidate.descriptor.getId());
+                        changed = true;
+                    }
+                }
+            }
+        }
+        return lazyIds;
+    }
+
+    private String firstFailedDependency(PluginDescriptor descriptor, Set<String> failed) {
+        for (String dep : dependencyIds(descriptor)) {
+            if (failed.contains(dep)) {
+                return dep;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 解析依赖的插件ID，兼容 "plugin-id"、"plugin-id@1.0.0"、"plugin-id>=1.0" 等写法（版本约束暂不校验）
+     */
+    static Set<String> dependencyIds(PluginDescriptor descriptor) {
+        if (descriptor.getDependencies() == null) {
+            return Set.of();
+        }
+        Set<String> ids = new LinkedHashSet<>();
+        for (Object dep : descriptor.getDependencies()) {
+            if (dep == null) continue;
+            String id = dep.toString().trim().split("[\\s@:<>=]", 2)[0];
+            if (!id.isEmpty() && !id.equals(descriptor.getId())) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    private static class LoaderThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "plugin-loader-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
@@ -0,0 +1,436 @@
+package com.hxuanyu.funnytoolbox.plugin.core;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * 插件静态资源缓存
+ * 将插件包 basePath 下的静态资源解压到 data/static-cache/{pluginId}/{包内容哈希}，目录内最后写入 .manifest，
+ * 清单存在即表示解压完整。解压先写入临时目录再整体重命名，包内容不变时（启用/禁用切换、重启、重载同一个包）直接复用。
+ * 每个加载代次启用时登记引用、卸载或被替换时释放；无引用且超过保留时间的旧版本由后台任务清理。
+ * 解压时为达到大小阈值的可压缩文件（JS、CSS、HTML 等）预先生成 .gz 变体，插件包自带的 .gz 原样保留；
+ * 并为每个文件计算内容哈希写入 .etags，作为强 ETag 使用。
+ * 解压先规划并一次性创建目录，再由独立线程池并行解压写入（同时处理的条目总字节数受限），各阶段耗时记录到插件计时。
+ */
+@Component
+@Slf4j
+public class PluginStaticCache {
+
+    static final String MANIFEST = ".manifest";
+    static final String ETAGS = ".etags";
+    // 缓存目录格式版本，格式变化后旧目录视为不完整并重新解压
+    private static final String FORMAT_VERSION = "2";
+    private static final String TMP_PREFIX = ".tmp-";
+    private static final String GZIP_SUFFIX = ".gz";
+    private static final Set<String> COMPRESSIBLE_EXTENSIONS = Set.of(
+            "html", "htm", "js", "mjs", "cjs", "css", "json", "map", "svg", "txt", "xml", "wasm", "ttf", "otf", "ico");
+
+    @Value("${platform.plugin.static-cache.dir:data/static-cache}")
+    private String cacheRoot;
+
+    @Value("${platform.plugin.static-cache.gc-interval-ms:600000}")
+    private long gcIntervalMs;
+
+    @Value("${platform.plugin.static-cache.retention-ms:600000}")
+    private long retentionMs;
+
+    @Value("${platform.plugin.static-cache.gzip.enabled:true}")
+    private boolean gzipEnabled;
+
+    @Value("${platform.plugin.static-cache.gzip.min-size:1024}")
+    private long gzipMinSize;
+
+    @Value("${platform.plugin.static-cache.extract.parallelism:0}")
+    private int extractParallelism;
+
+    @Value("${platform.plugin.static-cache.extract.max-bytes-in-flight:67108864}")
+    private long maxBytesInFlight;
+
+    // 缓存目录 -> 正在使用它的加载代次
+    private final Map<Path, Set<Long>> holders = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService gcExecutor;
+    private ExecutorService extractExecutor;
+    private int parallelism;
+
+    // 正在解压的条目总字节数上限，以 KB 为单位的许可
+    private Semaphore inFlightPermits;
+    private int maxPermits;
+
+    @FunctionalInterface
+    private interface IOTask<T> {
+        void run(T item) throws IOException;
+    }
+
+    @PostConstruct
+    public void start() {
+        parallelism = extractParallelism > 0 ? extractParallelism
+                : Math.min(8, Math.max(1, Runtime.getRuntime().availableProcessors()));
+        AtomicInteger counter = new AtomicInteger();
+        extractExecutor = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "plugin-static-extract-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        maxPermits = (int) Math.max(1, Math.min(Integer.MAX_VALUE, maxBytesInFlight / 1024));
+        inFlightPermits = new Semaphore(maxPermits);
+
+        gcExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "plugin-static-cache-gc");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = Math.max(1000, gcIntervalMs);
+        gcExecutor.scheduleWithFixedDelay(this::collectGarbage, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (gcExecutor != null) {
+            gcExecutor.shutdownNow();
+        }
+        if (extractExecutor != null) {
+            extractExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 准备插件某一加载代次的静态资源目录：已有完整解压则复用，否则解压，返回目录绝对路径
+     *
+     * @param key        缓存键，通常为包内容哈希
+     * @param generation 使用该目录的加载代次，释放前不会被清理
+     * @param timings    解压各阶段耗时记录位置
+     */
+    public Path prepare(String pluginId, String key, long generation, String packagePath, String basePath,
+                        PluginTimings timings) throws IOException {
+        Path dir = getPluginDir(pluginId).resolve(key).toAbsolutePath().normalize();
+        String normBase = normalizeBase(basePath);
+        synchronized (this) {
+            holders.computeIfAbsent(dir, k -> ConcurrentHashMap.newKeySet()).add(generation);
+        }
+        try {
+            if (isComplete(dir, normBase)) {
+                // 刷新修改时间，作为最近使用时间参与清理判断
+                Files.setLastModifiedTime(dir.resolve(MANIFEST), FileTime.fromMillis(System.currentTimeMillis()));
+                log.info("Reusing static cache of plugin {}: {}", pluginId, dir);
+                return dir;
+            }
+            extract(dir, packagePath, normBase, timings);
+            return dir;
+        } catch (IOException | RuntimeException e) {
+            release(pluginId, generation);
+            throw e;
+        }
+    }
+
+    /**
+     * 释放某一加载代次对静态资源目录的引用（目录保留，由后台清理）
+     */
+    public synchronized void release(String pluginId, long generation) {
+        Path pluginDir = getPluginDir(pluginId).toAbsolutePath().normalize();
+        holders.entrySet().removeIf(e -> e.getKey().startsWith(pluginDir)
+                && e.getValue().remove(generation) && e.getValue().isEmpty());
+    }
+
+    /**
+     * 清理无引用且超过保留时间的缓存目录（包括旧版本布局遗留的目录与中断的临时目录）
+     */
+    public synchronized void collectGarbage() {
+        Path root = Paths.get(cacheRoot).toAbsolutePath().normalize();
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try (Stream<Path> plugins = Files.list(root)) {
+            for (Path pluginDir : plugins.filter(Files::isDirectory).toList()) {
+                try (Stream<Path> versions = Files.list(pluginDir)) {
+                    for (Path version : versions.toList()) {
+                        if (holders.containsKey(version) || now - lastUsed(version) < retentionMs) {
+                            continue;
+                        }
+                        FileUtils.deleteQuietly(version.toFile());
+                        log.info("Removed unused static cache: {}", version);
+                    }
+                }
+                try (Stream<Path> rest = Files.list(pluginDir)) {
+                    if (rest.findAny().isEmpty()) {
+                        Files.deleteIfExists(pluginDir);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Static cache garbage collection failed: {}", e.getMessage());
+        }
+    }
+
+    private Path getPluginDir(String pluginId) {
+        return Paths.get(cacheRoot, pluginId);
+    }
+
+    private long lastUsed(Path version) {
+        try {
+            Path manifest = version.resolve(MANIFEST);
+            return Files.getLastModifiedTime(Files.exists(manifest) ? manifest : version).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private boolean isComplete(Path dir, String normBase) {
+        Path manifest = dir.resolve(MANIFEST);
+        if (!Files.isRegularFile(manifest)) {
+            return false;
+        }
+        Properties props = new Properties();
+        try (InputStream is = Files.newInputStream(manifest)) {
+            props.load(is);
+        } catch (IOException e) {
+            return false;
+        }
+        return FORMAT_VERSION.equals(props.getProperty("version"))
+                && normBase.equals(props.getProperty("base-path"))
+                && String.valueOf(gzipEnabled).equals(props.getProperty("gzip", "false"));
+    }
+
+    /**
+     * 解压到临时目录、写入清单后整体重命名为目标目录
+     */
+    private void extract(Path dir, String packagePath, String normBase, PluginTimings timings) throws IOException {
+        Files.createDirectories(dir.getParent());
+        Path tmp = Files.createTempDirectory(dir.getParent(), TMP_PREFIX);
+        try {
+            AtomicLong bytes = new AtomicLong();
+            int files;
+            try (ZipFile zip = new ZipFile(packagePath)) {
+                // 1. 规划：筛选条目并一次性创建全部目录，写入阶段无需再检查目录
+                long t = System.nanoTime();
+                Map<ZipEntry, Path> plan = new LinkedHashMap<>();
+                Set<Path> dirs = new TreeSet<>();
+                Enumeration<? extends ZipEntry> entries = zip.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    String name = entry.getName();
+                    if (!name.startsWith(normBase)) {
+                        continue;
+                    }
+                    String relative = name.substring(normBase.length());
+                    if (relative.isEmpty()) {
+                        continue;
+                    }
+                    // 基础的路径穿越防护
+                    if (relative.contains("..") || relative.startsWith("/")
+                            || relative.equals(MANIFEST) || relative.equals(ETAGS)) {
+                        continue;
+                    }
+                    Path outPath = tmp.resolve(relative).normalize();
+                    if (!outPath.startsWith(tmp)) {
+                        continue;
+                    }
+                    if (entry.isDirectory()) {
+                        dirs.add(outPath);
+                    } else {
+                        dirs.add(outPath.getParent());
+                        plan.put(entry, outPath);
+                    }
+                }
+                for (Path d : dirs) {
+                    Files.createDirectories(d);
+                }
+                files = plan.size();
+                timings.record("enable.static.extract.plan", t);
+
+                // 2. 并行解压写入，按条目大小占用许可，限制同时处理的总字节数
+                t = System.nanoTime();
+                runParallel(new ArrayList<>(plan.entrySet()), e -> {
+                    int permits = permitsFor(Math.max(e.getKey().getSize(), e.getKey().getCompressedSize()));
+                    acquire(permits);
+                    try (InputStream is = zip.getInputStream(e.getKey())) {
+                        bytes.addAndGet(Files.copy(is, e.getValue(), StandardCopyOption.REPLACE_EXISTING));
+                    } finally {
+                        inFlightPermits.release(permits);
+                    }
+                });
+                timings.record("enable.static.extract.write", t);
+            }
+
+            long t = System.nanoTime();
+            int gzipFiles = gzipEnabled ? writeGzipVariants(tmp) : 0;
+            timings.record("enable.static.gzip", t);
+            t = System.nanoTime();
+            writeEtags(tmp);
+            timings.record("enable.static.etags", t);
+
+            Properties manifest = new Properties();
+            manifest.setProperty("version", FORMAT_VERSION);
+            manifest.setProperty("base-path", normBase);
+            manifest.setProperty("files", String.valueOf(files));
+            manifest.setProperty("bytes", String.valueOf(bytes.get()));
+            manifest.setProperty("gzip", String.valueOf(gzipEnabled));
+            manifest.setProperty("gzip-files", String.valueOf(gzipFiles));
+            try (OutputStream os = Files.newOutputStream(tmp.resolve(MANIFEST))) {
+                manifest.store(os, "plugin static cache");
+            }
+
+            // 目标目录存在但不完整（例如中断的旧解压）时先删除；并发解压同一版本时保留先完成的一份
+            if (Files.exists(dir) && !isComplete(dir, normBase)) {
+                FileUtils.deleteDirectory(dir.toFile());
+            }
+            if (!Files.exists(dir)) {
+                Files.move(tmp, dir, StandardCopyOption.ATOMIC_MOVE);
+                log.info("Extracted {} static file(s) ({} bytes) to {} with parallelism {}", files, bytes.get(), dir, parallelism);
+            }
+        } finally {
+            FileUtils.deleteQuietly(tmp.toFile());
+        }
+    }
+
+    /**
+     * 为可压缩文件生成 .gz 变体（已存在同名 .gz 或压缩后不更小的跳过），返回生成数量
+     */
+    private int writeGzipVariants(Path dir) throws IOException {
+        List<Path> candidates;
+        try (Stream<Path> files = Files.walk(dir)) {
+            candidates = files.filter(Files::isRegularFile).filter(this::isCompressible).toList();
+        }
+        AtomicInteger written = new AtomicInteger();
+        runParallel(candidates, file -> {
+            Path gz = file.resolveSibling(file.getFileName() + GZIP_SUFFIX);
+            if (Files.exists(gz)) {
+                return;
+            }
+            try (InputStream is = Files.newInputStream(file);
+                 OutputStream os = new GZIPOutputStream(Files.newOutputStream(gz))) {
+                is.transferTo(os);
+            }
+            if (Files.size(gz) >= Files.size(file)) {
+                Files.delete(gz);
+            } else {
+                written.incrementAndGet();
+            }
+        });
+        return written.get();
+    }
+
+    /**
+     * 计算每个文件（含 .gz 变体）的内容哈希，写入 .etags：相对路径 -> 哈希
+     */
+    private void writeEtags(Path dir) throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(dir)) {
+            files = stream.filter(Files::isRegularFile).toList();
+        }
+        Map<String, String> hashes = new ConcurrentHashMap<>();
+        runParallel(files, file -> hashes.put(dir.relativize(file).toString().replace('\\', '/'),
+                PluginPackageIndex.hash(file).substring(0, 32)));
+        Properties etags = new Properties();
+        etags.putAll(hashes);
+        try (OutputStream os = Files.newOutputStream(dir.resolve(ETAGS))) {
+            etags.store(os, "content hash per file");
+        }
+    }
+
+    /**
+     * 在解压线程池中并行执行并等待全部完成，任一失败时抛出首个异常
+     */
+    private <T> void runParallel(List<T> items, IOTask<T> task) throws IOException {
+        if (parallelism <= 1 || items.size() < 2) {
+            for (T item : items) {
+                task.run(item);
+            }
+            return;
+        }
+        List<Future<?>> futures = new ArrayList<>(items.size());
+        for (T item : items) {
+            futures.add(extractExecutor.submit(() -> {
+                task.run(item);
+                return null;
+            }));
+        }
+        IOException failure = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+                }
+            } catch (InterruptedException e) {
+                futures.forEach(f -> f.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Static resource extraction interrupted");
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private int permitsFor(long size) {
+        return (int) Math.max(1, Math.min(maxPermits, (Math.max(0, size) + 1023) / 1024));
+    }
+
+    private void acquire(int permits) throws InterruptedIOException {
+        try {
+            inFlightPermits.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Static resource extraction interrupted");
+        }
+    }
+
+    private boolean isCompressible(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        if (dot < 0 || !COMPRESSIBLE_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase())) {
+            return false;
+        }
+        try {
+            return Files.size(file) >= gzipMinSize;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static String normalizeBase(String basePath) {
+        String normBase = basePath == null ? "static" : basePath;
+        if (normBase.startsWith("/")) normBase = normBase.substring(1);
+        if (!normBase.endsWith("/")) normBase = normBase + "/";
+        return normBase;
+    }
+}
@@ -0,0 +1,84 @@
+package com.hxuanyu.funnytoolbox.plugin.core;
+
+import com.hxuanyu.funnytoolbox.plugin.model.PluginPhaseTiming;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 插件生命周期各阶段耗时统计
+ * 使用 System.nanoTime 计时，按阶段名累计次数、总耗时、最大耗时与最近一次耗时。
+ * 阶段名形如 "load.context.refresh"、"enable.static"，前缀为所属的生命周期操作。
+ */
+public class PluginTimings {
+
+    private final Map<String, Phase> phases = new LinkedHashMap<>();
+
+    private static class Phase {
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+        private long lastNanos;
+    }
+
+    /**
+     * 记录从 startNanos（System.nanoTime）到当前时刻的耗时
+     */
+    public void record(String phase, long startNanos) {
+        recordNanos(phase, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * 记录一次阶段耗时
+     */
+    public synchronized void recordNanos(String phase, long nanos) {
+        Phase p = phases.computeIfAbsent(phase, k -> new Phase());
+        p.count++;
+        p.totalNanos += nanos;
+        p.maxNanos = Math.max(p.maxNanos, nanos);
+        p.lastNanos = nanos;
+    }
+
+    /**
+     * 合并另一份统计（用于重载时保留历史数据）
+     */
+    public synchronized void mergeFrom(PluginTimings other) {
+        for (PluginPhaseTiming t : other.snapshot()) {
+            Phase p = phases.computeIfAbsent(t.getPhase(), k -> new Phase());
+            p.count += t.getCount();
+            p.totalNanos += t.getTotalNanos();
+            p.maxNanos = Math.max(p.maxNanos, t.getMaxNanos());
+            p.lastNanos = t.getLastNanos();
+        }
+    }
+
+    /**
+     * 最近一次某阶段的耗时（纳秒），未记录时返回 0
+     */
+    public synchronized long lastNanos(String phase) {
+        Phase p = phases.get(phase);
+        return p == null ? 0 : p.lastNanos;
+    }
+
+    /**
+     * 按记录顺序导出各阶段耗时
+     */
+    public synchronized List<PluginPhaseTiming> snapshot() {
+        List<PluginPhaseTiming> list = new ArrayList<>(phases.size());
+        phases.forEach((name, p) -> {
+            PluginPhaseTiming t = new PluginPhaseTiming();
+            t.setPhase(name);
+            t.setCount(p.count);
+            t.setTotalNanos(p.totalNanos);
+            t.setMaxNanos(p.maxNanos);
+            t.setLastNanos(p.lastNanos);
+            t.setTotalMillis(p.totalNanos / 1_000_000.0);
+            t.setMaxMillis(p.maxNanos / 1_000_000.0);
+            t.setLastMillis(p.lastNanos / 1_000_000.0);
+            list.add(t);
+        });
+        return list;
+    }
+}
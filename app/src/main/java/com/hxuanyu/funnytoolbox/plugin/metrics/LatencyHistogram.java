@@ -0,0 +1,92 @@
+package com.hxuanyu.funnytoolbox.plugin.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 固定桶延迟直方图
+ * 桶边界固定（1ms ~ 10s，另有一个溢出桶），记录时线性查找桶位并累加对应的 LongAdder，不分配对象。
+ * 分位数由桶计数在桶内线性插值估算，精度取决于桶宽度。
+ */
+public class LatencyHistogram {
+
+    // 桶上边界（纳秒，含），最后一个桶为溢出桶
+    static final long[] BOUNDS_NANOS = {
+            1_000_000L, 2_500_000L, 5_000_000L, 10_000_000L, 25_000_000L, 50_000_000L,
+            100_000_000L, 250_000_000L, 500_000_000L, 1_000_000_000L, 2_500_000_000L,
+            5_000_000_000L, 10_000_000_000L
+    };
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS_NANOS.length + 1];
+    private final LongAdder sumNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        int i = 0;
+        while (i < BOUNDS_NANOS.length && nanos > BOUNDS_NANOS[i]) {
+            i++;
+        }
+        buckets[i].increment();
+        sumNanos.add(nanos);
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    /**
+     * 各桶计数（非累计），长度为边界数 + 1
+     */
+    public long[] bucketCounts() {
+        long[] counts = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    public long getSumNanos() {
+        return sumNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * 由桶计数估算分位数（纳秒），无数据时返回 0
+     */
+    static long percentile(long[] counts, double quantile, long maxNanos) {
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        double rank = quantile * total;
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                continue;
+            }
+            if (cumulative + counts[i] >= rank) {
+                long lower = i == 0 ? 0 : BOUNDS_NANOS[i - 1];
+                long upper = i < BOUNDS_NANOS.length ? Math.min(BOUNDS_NANOS[i], maxNanos) : maxNanos;
+                if (upper <= lower) {
+                    return upper;
+                }
+                double fraction = (rank - cumulative) / counts[i];
+                return lower + (long) ((upper - lower) * fraction);
+            }
+            cumulative += counts[i];
+        }
+        return maxNanos;
+    }
+}
@@ -0,0 +1,256 @@
+package com.hxuanyu.funnytoolbox.plugin.metrics;
+
+import com.hxuanyu.funnytoolbox.plugin.model.RequestMetrics;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 插件请求指标
+ * 按插件与路由（RouteRegistry 注册的映射）统计请求数、错误数、在途请求数与延迟分布。
+ * 插件维度由 PluginAccessFilter 在 API 请求前后记录；路由维度由 {@link PluginMetricsInterceptor}
+ * 根据匹配到的路径模式定位统计项，请求结束时与插件维度一并记录。
+ * 统计在重启式与蓝绿重载之间保留，插件卸载后清除。
+ */
+@Component
+public class PluginMetrics {
+
+    private static final String ANY_METHOD = "*";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private static class PluginEntry {
+        private final RequestStats total;
+        // "METHOD pattern" -> 路由统计
+        private final Map<String, RequestStats> routes = new ConcurrentHashMap<>();
+
+        private PluginEntry(String pluginId) {
+            this.total = new RequestStats(pluginId, null, null);
+        }
+    }
+
+    private final Map<String, PluginEntry> plugins = new ConcurrentHashMap<>();
+
+    // 路径模式 -> HTTP 方法 -> 路由统计（请求时按匹配到的模式查找）
+    private final Map<String, Map<String, RequestStats>> patterns = new ConcurrentHashMap<>();
+
+    /**
+     * 插件维度的统计项，不存在时创建
+     */
+    public RequestStats plugin(String pluginId) {
+        PluginEntry entry = plugins.get(pluginId);
+        if (entry == null) {
+            entry = plugins.computeIfAbsent(pluginId, PluginEntry::new);
+        }
+        return entry.total;
+    }
+
+    /**
+     * 按匹配到的路径模式与请求方法查找路由统计项，非插件路由返回 null
+     */
+    public RequestStats route(String pattern, String method) {
+        Map<String, RequestStats> byMethod = patterns.get(pattern);
+        if (byMethod == null) {
+            return null;
+        }
+        RequestStats stats = byMethod.get(method);
+        if (stats == null && "HEAD".equals(method)) {
+            stats = byMethod.get("GET");
+        }
+        return stats != null ? stats : byMethod.get(ANY_METHOD);
+    }
+
+    /**
+     * 登记插件路由（RouteRegistry 注册映射时调用），同一路由重复登记时沿用已有统计
+     */
+    public void registerRoute(String pluginId, RequestMappingInfo mappingInfo) {
+        PluginEntry entry = plugins.computeIfAbsent(pluginId, PluginEntry::new);
+        Set<RequestMethod> methods = mappingInfo.getMethodsCondition().getMethods();
+        for (String pattern : mappingInfo.getPatternValues()) {
+            Map<String, RequestStats> byMethod = patterns.computeIfAbsent(pattern, k -> new ConcurrentHashMap<>());
+            if (methods.isEmpty()) {
+                byMethod.put(ANY_METHOD, entry.routes.computeIfAbsent(ANY_METHOD + " " + pattern,
+                        k -> new RequestStats(pluginId, ANY_METHOD, pattern)));
+                continue;
+            }
+            for (RequestMethod method : methods) {
+                byMethod.put(method.name(), entry.routes.computeIfAbsent(method.name() + " " + pattern,
+                        k -> new RequestStats(pluginId, method.name(), pattern)));
+            }
+        }
+    }
+
+    /**
+     * 清除插件的全部统计（插件卸载后调用）
+     */
+    public void remove(String pluginId) {
+        PluginEntry entry = plugins.remove(pluginId);
+        if (entry == null) {
+            return;
+        }
+        for (RequestStats stats : entry.routes.values()) {
+            patterns.computeIfPresent(stats.getRoute(), (pattern, byMethod) -> {
+                byMethod.remove(stats.getMethod(), stats);
+                return byMethod.isEmpty() ? null : byMethod;
+            });
+        }
+    }
+
+    /**
+     * 导出各插件及其路由的指标快照（按插件ID、路由排序）
+     */
+    public List<RequestMetrics> snapshot() {
+        List<RequestMetrics> list = new ArrayList<>();
+        new TreeMap<>(plugins).forEach((pluginId, entry) -> {
+            RequestMetrics metrics = toMetrics(entry.total);
+            List<RequestMetrics> routes = new ArrayList<>();
+            for (RequestStats stats : sortedRoutes(entry)) {
+                routes.add(toMetrics(stats));
+            }
+            metrics.setRoutes(routes);
+            list.add(metrics);
+        });
+        return list;
+    }
+
+    /**
+     * 以 Prometheus 文本格式（0.0.4）导出指标
+     */
+    public String toPrometheus() {
+        StringBuilder sb = new StringBuilder(4096);
+        Map<String, PluginEntry> sorted = new TreeMap<>(plugins);
+        List<RequestStats> pluginStats = new ArrayList<>();
+        List<RequestStats> routeStats = new ArrayList<>();
+        sorted.values().forEach(entry -> {
+            pluginStats.add(entry.total);
+            routeStats.addAll(sortedRoutes(entry));
+        });
+        writeFamily(sb, "funnytoolbox_plugin", "plugin", pluginStats);
+        writeFamily(sb, "funnytoolbox_plugin_route", "plugin route", routeStats);
+        return sb.toString();
+    }
+
+    private List<RequestStats> sortedRoutes(PluginEntry entry) {
+        List<RequestStats> routes = new ArrayList<>(entry.routes.values());
+        routes.sort(Comparator.comparing(RequestStats::getRoute).thenComparing(RequestStats::getMethod));
+        return routes;
+    }
+
+    private RequestMetrics toMetrics(RequestStats stats) {
+        LatencyHistogram latency = stats.getLatency();
+        long[] counts = latency.bucketCounts();
+        long count = 0;
+        for (long c : counts) {
+            count += c;
+        }
+        long max = latency.getMaxNanos();
+        RequestMetrics m = new RequestMetrics();
+        m.setPluginId(stats.getPluginId());
+        m.setMethod(stats.getMethod());
+        m.setRoute(stats.getRoute());
+        m.setRequests(stats.getRequests());
+        m.setErrors(stats.getErrors());
+        m.setInFlight(stats.getInFlight());
+        m.setMeanMillis(count == 0 ? 0 : latency.getSumNanos() / 1_000_000.0 / count);
+        m.setP50Millis(LatencyHistogram.percentile(counts, 0.5, max) / 1_000_000.0);
+        m.setP90Millis(LatencyHistogram.percentile(counts, 0.9, max) / 1_000_000.0);
+        m.setP99Millis(LatencyHistogram.percentile(counts, 0.99, max) / 1_000_000.0);
+        m.setMaxMillis(max / 1_000_000.0);
+        return m;
+    }
+
+    private void writeFamily(StringBuilder sb, String prefix, String description, List<RequestStats> all) {
+        sb.append("# HELP ").append(prefix).append("_requests_total Completed ").append(description).append(" API requests.\n");
+        sb.append("# TYPE ").append(prefix).append("_requests_total counter\n");
+        for (RequestStats s : all) {
+            sb.append(prefix).append("_requests_total");
+            labels(sb, s, null, null).append(' ').append(s.getRequests()).append('\n');
+        }
+        sb.append("# HELP ").append(prefix).append("_request_errors_total ").append(description)
+                .append(" API requests that failed with an exception or a 5xx status.\n");
+        sb.append("# TYPE ").append(prefix).append("_request_errors_total counter\n");
+        for (RequestStats s : all) {
+            sb.append(prefix).append("_request_errors_total");
+            labels(sb, s, null, null).append(' ').append(s.getErrors()).append('\n');
+        }
+        sb.append("# HELP ").append(prefix).append("_requests_in_flight ").append(description)
+                .append(" API requests currently being processed.\n");
+        sb.append("# TYPE ").append(prefix).append("_requests_in_flight gauge\n");
+        for (RequestStats s : all) {
+            sb.append(prefix).append("_requests_in_flight");
+            labels(sb, s, null, null).append(' ').append(s.getInFlight()).append('\n');
+        }
+
+        sb.append("# HELP ").append(prefix).append("_request_duration_seconds ").append(description)
+                .append(" API request latency.\n");
+        sb.append("# TYPE ").append(prefix).append("_request_duration_seconds histogram\n");
+        List<long[]> allCounts = new ArrayList<>(all.size());
+        for (RequestStats s : all) {
+            long[] counts = s.getLatency().bucketCounts();
+            allCounts.add(counts);
+            long cumulative = 0;
+            for (int i = 0; i < counts.length; i++) {
+                cumulative += counts[i];
+                String le = i < LatencyHistogram.BOUNDS_NANOS.length
+                        ? seconds(LatencyHistogram.BOUNDS_NANOS[i]) : "+Inf";
+                sb.append(prefix).append("_request_duration_seconds_bucket");
+                labels(sb, s, "le", le).append(' ').append(cumulative).append('\n');
+            }
+            sb.append(prefix).append("_request_duration_seconds_sum");
+            labels(sb, s, null, null).append(' ').append(seconds(s.getLatency().getSumNanos())).append('\n');
+            sb.append(prefix).append("_request_duration_seconds_count");
+            labels(sb, s, null, null).append(' ').append(cumulative).append('\n');
+        }
+
+        sb.append("# HELP ").append(prefix).append("_request_duration_quantile_seconds ").append(description)
+                .append(" API request latency quantiles estimated from the histogram buckets.\n");
+        sb.append("# TYPE ").append(prefix).append("_request_duration_quantile_seconds gauge\n");
+        for (int i = 0; i < all.size(); i++) {
+            RequestStats s = all.get(i);
+            long max = s.getLatency().getMaxNanos();
+            for (double q : QUANTILES) {
+                sb.append(prefix).append("_request_duration_quantile_seconds");
+                labels(sb, s, "quantile", String.valueOf(q)).append(' ')
+                        .append(seconds(LatencyHistogram.percentile(allCounts.get(i), q, max))).append('\n');
+            }
+        }
+    }
+
+    private StringBuilder labels(StringBuilder sb, RequestStats s, String extraName, String extraValue) {
+        sb.append("{plugin=\"");
+        escape(sb, s.getPluginId()).append('"');
+        if (s.getRoute() != null) {
+            sb.append(",method=\"");
+            escape(sb, s.getMethod()).append("\",route=\"");
+            escape(sb, s.getRoute()).append('"');
+        }
+        if (extraName != null) {
+            sb.append(',').append(extraName).append("=\"").append(extraValue).append('"');
+        }
+        return sb.append('}');
+    }
+
+    private static StringBuilder escape(StringBuilder sb, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> sb.append("\\\\");
+                case '"' -> sb.append("\\\"");
+                case '\n' -> sb.append("\\n");
+                default -> sb.append(c);
+            }
+        }
+        return sb;
+    }
+
+    private static String seconds(long nanos) {
+        return String.valueOf(nanos / 1_000_000_000.0);
+    }
+}
@@ -0,0 +1,41 @@
+package com.hxuanyu.funnytoolbox.plugin.metrics;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * 路由维度指标拦截器
+ * 处理器映射完成后按匹配到的路径模式定位插件路由的统计项，计入在途请求并存入请求属性；
+ * 请求结束时由 PluginAccessFilter 取出，与插件维度使用同一耗时一并记录。
+ */
+@Component
+public class PluginMetricsInterceptor implements HandlerInterceptor {
+
+    /**
+     * 请求属性：当前请求所属路由的 {@link RequestStats}
+     */
+    public static final String ROUTE_STATS_ATTRIBUTE = PluginMetricsInterceptor.class.getName() + ".routeStats";
+
+    @Autowired
+    private PluginMetrics pluginMetrics;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getAttribute(ROUTE_STATS_ATTRIBUTE) != null) {
+            return true;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (pattern instanceof String) {
+            RequestStats stats = pluginMetrics.route((String) pattern, request.getMethod());
+            if (stats != null) {
+                stats.enter();
+                request.setAttribute(ROUTE_STATS_ATTRIBUTE, stats);
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,76 @@
+package com.hxuanyu.funnytoolbox.plugin.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个插件或一条路由的请求统计：完成请求数、错误数、在途请求数与延迟直方图
+ * 计数使用 LongAdder，高并发下各线程写入不同的计数单元，记录过程不加锁、不分配对象。
+ */
+public class RequestStats {
+
+    private final String pluginId;
+    // 路由维度的标签，插件维度为 null
+    private final String method;
+    private final String route;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder inFlight = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    RequestStats(String pluginId, String method, String route) {
+        this.pluginId = pluginId;
+        this.method = method;
+        this.route = route;
+    }
+
+    /**
+     * 请求开始处理
+     */
+    public void enter() {
+        inFlight.increment();
+    }
+
+    /**
+     * 请求处理结束（与 {@link #enter()} 成对调用）
+     *
+     * @param nanos 处理耗时
+     * @param error 是否以异常或 5xx 结束
+     */
+    public void exit(long nanos, boolean error) {
+        inFlight.decrement();
+        requests.increment();
+        if (error) {
+            errors.increment();
+        }
+        latency.record(nanos);
+    }
+
+    public String getPluginId() {
+        return pluginId;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getRoute() {
+        return route;
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getInFlight() {
+        return inFlight.sum();
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+}
@@ -0,0 +1,13 @@
+package com.hxuanyu.funnytoolbox.plugin.model;
+
+import lombok.Data;
+
+/**
+ * 插件并发隔离配置（管理端覆盖值，字段为 null 时沿用 plugin.yml 中的声明）
+ */
+@Data
+public class PluginBulkheadConfig {
+    private Integer maxConcurrentRequests;  // <= 0 表示不限制
+    private Integer queueSize;
+    private Long queueTimeoutMs;
+}
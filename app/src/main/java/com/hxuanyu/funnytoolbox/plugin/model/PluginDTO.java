@@ -23,4 +23,11 @@ public class PluginDTO {
     private String frontendEntry;
     private String apiPrefix;
     private List<String> tags;
+    // 最近一次启用或激活失败的原因
+    private String errorMessage;
+    // 并发隔离：最大并发请求数（未限制时以下字段为 null）、当前可用许可、排队中的请求数、累计拒绝数
+    private Integer maxConcurrentRequests;
+    private Integer availablePermits;
+    private Integer queuedRequests;
+    private Long rejectedRequests;
 }
\ No newline at end of file
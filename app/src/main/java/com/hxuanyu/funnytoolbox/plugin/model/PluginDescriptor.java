@@ -32,6 +32,8 @@ public class PluginDescriptor {
     private List<String> permissions;
     // 插件在描述符中声明的标签（用于默认分类，可被管理端覆盖）
     private List<String> tags;
+    // 是否懒加载：启动时仅注册占位，首次请求时才真正加载并启用；未声明时使用平台配置 platform.plugin.lazy
+    private Boolean lazy;
 
     @Data
     public static class FrontendConfig {
@@ -42,6 +44,25 @@ public class PluginDescriptor {
     @Data
     public static class ApiConfig {
         private String prefix;      // /api/secret-capsule
+        // 并发隔离（可被管理端覆盖）：同时处理的最大请求数，未声明或 <= 0 表示不限制
+        private Integer maxConcurrentRequests;
+        // 超出并发上限时允许排队等待的请求数，未声明时不排队、直接拒绝
+        private Integer queueSize;
+        // 排队等待的最长时间（毫秒），未声明时使用平台配置 platform.plugin.bulkhead.queue-timeout-ms
+        private Long queueTimeoutMs;
+        // 限流（可选）
+        private RateLimitConfig rateLimit;
+        // 是否在虚拟线程上执行控制器方法，未声明时使用平台配置 platform.plugin.virtual-threads.enabled
+        private Boolean virtualThreads;
+        // 启用请求合并的 GET 路由（相对 prefix 的路径模式，如 /stats、/dashboard/**），相同请求并发时只执行一次
+        private List<String> coalesce;
+    }
+
+    @Data
+    public static class RateLimitConfig {
+        private Double permitsPerSecond;    // 平均每秒允许的请求数
+        private Integer burst;              // 允许的突发请求数，未声明时为 1
+        private String per;                 // 限流维度：plugin（默认，整个插件共享）、ip、session
     }
 
     /**
@@ -76,10 +97,29 @@ public class PluginDescriptor {
         }
 
         // 解析 api
-        Map<String, String> apiData = (Map<String, String>) data.get("api");
+        Map<String, Object> apiData = (Map<String, Object>) data.get("api");
         if (apiData != null) {
             ApiConfig api = new ApiConfig();
-            api.setPrefix(apiData.get("prefix"));
+            api.setPrefix((String) apiData.get("prefix"));
+            api.setMaxConcurrentRequests(parseInteger(apiData.get("maxConcurrentRequests")));
+            api.setQueueSize(parseInteger(apiData.get("queueSize")));
+            Integer queueTimeoutMs = parseInteger(apiData.get("queueTimeoutMs"));
+            api.setQueueTimeoutMs(queueTimeoutMs != null ? queueTimeoutMs.longValue() : null);
+            Object virtualThreadsObj = apiData.get("virtualThreads");
+            if (virtualThreadsObj != null) {
+                api.setVirtualThreads(Boolean.parseBoolean(virtualThreadsObj.toString().trim()));
+            }
+            Object rateLimitObj = apiData.get("rateLimit");
+            if (rateLimitObj instanceof Map) {
+                Map<String, Object> rateLimitData = (Map<String, Object>) rateLimitObj;
+                RateLimitConfig rateLimit = new RateLimitConfig();
+                rateLimit.setPermitsPerSecond(parseDouble(rateLimitData.get("permitsPerSecond")));
+                rateLimit.setBurst(parseInteger(rateLimitData.get("burst")));
+                Object per = rateLimitData.get("per");
+                rateLimit.setPer(per != null ? per.toString().trim() : null);
+                api.setRateLimit(rateLimit);
+            }
+            api.setCoalesce(parseStringList(apiData.get("coalesce")));
             descriptor.setApi(api);
         }
 
@@ -87,6 +127,12 @@ public class PluginDescriptor {
         descriptor.setDependencies((List<String>) data.get("dependencies"));
         descriptor.setPermissions((List<String>) data.get("permissions"));
 
+        // 解析懒加载（可选）
+        Object lazyObj = data.get("lazy");
+        if (lazyObj != null) {
+            descriptor.setLazy(Boolean.parseBoolean(lazyObj.toString().trim()));
+        }
+
         // 解析标签（可选）
         Object tagsObj = data.get("tags");
         if (tagsObj instanceof List) {
@@ -113,6 +159,49 @@ public class PluginDescriptor {
         return descriptor;
     }
 
+    /**
+     * 解析 YAML 列表或逗号分隔的字符串，缺省时返回 null
+     */
+    private static List<String> parseStringList(Object value) {
+        java.util.stream.Stream<String> items;
+        if (value instanceof List) {
+            items = ((List<?>) value).stream().filter(Objects::nonNull).map(Object::toString);
+        } else if (value instanceof String) {
+            items = java.util.Arrays.stream(((String) value).split(","));
+        } else {
+            return null;
+        }
+        return items.map(String::trim).filter(s -> !s.isEmpty()).distinct().toList();
+    }
+
+    /**
+     * 解析可选的整数配置项，缺省或格式错误时返回 null
+     */
+    private static Integer parseInteger(Object value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(value.toString().trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 解析可选的小数配置项，缺省或格式错误时返回 null
+     */
+    private static Double parseDouble(Object value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(value.toString().trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     /**
      * 将对象形式的 icon 字段解析为 PluginIcon
      * 支持示例：
@@ -0,0 +1,18 @@
+package com.hxuanyu.funnytoolbox.plugin.model;
+
+import lombok.Data;
+
+/**
+ * 插件生命周期阶段耗时
+ */
+@Data
+public class PluginPhaseTiming {
+    private String phase;       // 阶段名，例如 load.context.refresh
+    private long count;         // 执行次数
+    private long totalNanos;
+    private long maxNanos;
+    private long lastNanos;
+    private double totalMillis;
+    private double maxMillis;
+    private double lastMillis;
+}
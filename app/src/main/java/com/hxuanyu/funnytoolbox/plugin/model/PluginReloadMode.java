@@ -0,0 +1,29 @@
+package com.hxuanyu.funnytoolbox.plugin.model;
+
+/**
+ * 插件重载模式
+ */
+public enum PluginReloadMode {
+    /**
+     * 先卸载再加载：重载期间插件接口不可用
+     */
+    RESTART,
+
+    /**
+     * 蓝绿重载：新版本与旧版本并存启动，原子切换路由与静态资源后排空并关闭旧版本
+     */
+    BLUE_GREEN;
+
+    /**
+     * 解析配置或参数值（restart / blue-green，忽略大小写），无法识别时抛出异常
+     */
+    public static PluginReloadMode parse(String value) {
+        String normalized = value.trim().toUpperCase().replace('-', '_');
+        for (PluginReloadMode mode : values()) {
+            if (mode.name().equals(normalized)) {
+                return mode;
+            }
+        }
+        throw new PluginException("Unknown reload mode: " + value);
+    }
+}
@@ -2,6 +2,13 @@ package com.hxuanyu.funnytoolbox.plugin.model;
 
 /**
  * 插件状态
+ * 合法的状态迁移：
+ * LOADED → ENABLED / ERROR / UNLOADED
+ * ENABLED → DISABLED / ERROR
+ * DISABLED → ENABLED / ERROR / UNLOADED
+ * ERROR → ENABLED / DISABLED / UNLOADED
+ * LAZY → DISABLED / ERROR / UNLOADED（激活时由新的上下文替换占位上下文，激活失败时占位进入 ERROR）
+ * UNLOADED 为终态
  */
 public enum PluginStatus {
     /**
@@ -22,5 +29,29 @@ public enum PluginStatus {
     /**
      * 错误状态
      */
-    ERROR
+    ERROR,
+
+    /**
+     * 已卸载（上下文即将从平台移除）
+     */
+    UNLOADED,
+
+    /**
+     * 懒加载占位（仅读取了 plugin.yml，首次请求时激活）
+     */
+    LAZY;
+
+    /**
+     * 是否允许从当前状态迁移到目标状态
+     */
+    public boolean canTransitionTo(PluginStatus target) {
+        return switch (this) {
+            case LOADED -> target == ENABLED || target == ERROR || target == UNLOADED;
+            case ENABLED -> target == DISABLED || target == ERROR;
+            case DISABLED -> target == ENABLED || target == ERROR || target == UNLOADED;
+            case ERROR -> target == ENABLED || target == DISABLED || target == UNLOADED;
+            case UNLOADED -> false;
+            case LAZY -> target == DISABLED || target == ERROR || target == UNLOADED;
+        };
+    }
 }
@@ -0,0 +1,24 @@
+package com.hxuanyu.funnytoolbox.plugin.model;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 插件或路由的请求指标快照
+ */
+@Data
+public class RequestMetrics {
+    private String pluginId;
+    private String method;      // 路由维度：HTTP 方法，未限定方法时为 *
+    private String route;       // 路由维度：路径模式，例如 /api/demo/items/{id}
+    private long requests;      // 已完成请求数
+    private long errors;        // 异常或 5xx 结束的请求数
+    private long inFlight;      // 正在处理的请求数
+    private double meanMillis;
+    private double p50Millis;   // 分位数由固定桶直方图估算
+    private double p90Millis;
+    private double p99Millis;
+    private double maxMillis;
+    private List<RequestMetrics> routes;  // 插件维度：各路由指标
+}
@@ -0,0 +1,104 @@
+package com.hxuanyu.funnytoolbox.plugin.registry;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 插件静态资源内存缓存
+ * 按总字节数限制容量，超过 max-file-size 的文件不缓存。
+ * 命中时只读取资源项上的 volatile 字段，不加锁、不分配；载入新文件超出容量时按最近访问时间淘汰（近似 LRU）。
+ */
+@Component
+@Slf4j
+public class AssetByteCache {
+
+    @Value("${platform.plugin.static-cache.memory.max-bytes:67108864}")
+    private long maxBytes;
+
+    @Value("${platform.plugin.static-cache.memory.max-file-size:262144}")
+    private long maxFileSize;
+
+    private final Set<PluginAsset> resident = ConcurrentHashMap.newKeySet();
+    private long usedBytes;
+
+    /**
+     * 获取资源内容，不适合缓存或读取失败时返回 null（调用方改为从磁盘流式读取）
+     */
+    byte[] get(PluginAsset asset) {
+        byte[] content = asset.bytes;
+        if (content != null) {
+            asset.lastAccess = System.nanoTime();
+            return content;
+        }
+        if (!isCacheable(asset.contentLength())) {
+            return null;
+        }
+        try {
+            content = asset.readAllBytes();
+        } catch (IOException e) {
+            log.debug("Failed to load plugin asset into memory: {}", asset.getDescription(), e);
+            return null;
+        }
+        synchronized (this) {
+            if (asset.bytes != null) {
+                return asset.bytes;
+            }
+            asset.bytes = content;
+            asset.lastAccess = System.nanoTime();
+            resident.add(asset);
+            usedBytes += content.length;
+            evictIfNeeded();
+        }
+        return content;
+    }
+
+    /**
+     * 给定大小的文件是否会被载入内存缓存
+     */
+    boolean isCacheable(long size) {
+        return size <= maxFileSize && size <= maxBytes;
+    }
+
+    /**
+     * 清除插件的全部缓存内容（注销静态资源时调用）
+     */
+    public synchronized void invalidate(String pluginId) {
+        resident.removeIf(asset -> {
+            if (!asset.getPluginId().equals(pluginId)) {
+                return false;
+            }
+            drop(asset);
+            return true;
+        });
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    private void evictIfNeeded() {
+        while (usedBytes > maxBytes && !resident.isEmpty()) {
+            PluginAsset oldest = null;
+            for (PluginAsset asset : resident) {
+                if (oldest == null || asset.lastAccess < oldest.lastAccess) {
+                    oldest = asset;
+                }
+            }
+            resident.remove(oldest);
+            drop(oldest);
+        }
+    }
+
+    private void drop(PluginAsset asset) {
+        byte[] content = asset.bytes;
+        if (content != null) {
+            usedBytes -= content.length;
+            asset.bytes = null;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.hxuanyu.funnytoolbox.plugin.registry;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.StringUtils;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 缓冲的处理器响应（状态码、响应头与响应体），可写出到其它请求的响应
+ * 用于响应缓存与请求合并。
+ */
+final class BufferedResponse {
+
+    // 不随响应回放的头：由平台按本次请求重新生成，或与单个客户端相关（CORS 头由本次请求的处理链设置）
+    private static final Set<String> EXCLUDED_HEADERS = Set.of(
+            "set-cookie", "content-length", "content-type", "transfer-encoding", "date", "age");
+
+    final int status;
+    final String contentType;
+    final List<String[]> headers;
+    final byte[] body;
+
+    private BufferedResponse(int status, String contentType, List<String[]> headers, byte[] body) {
+        this.status = status;
+        this.contentType = contentType;
+        this.headers = headers;
+        this.body = body;
+    }
+
+    /**
+     * 从缓冲包装中读取处理器生成的响应（在 copyBodyToResponse 之前调用）
+     */
+    static BufferedResponse capture(ContentCachingResponseWrapper response) {
+        List<String[]> headers = new ArrayList<>();
+        for (String name : response.getHeaderNames()) {
+            String lower = name.toLowerCase(Locale.ROOT);
+            if (EXCLUDED_HEADERS.contains(lower) || lower.startsWith("access-control-")) {
+                continue;
+            }
+            for (String value : response.getHeaders(name)) {
+                headers.add(new String[]{name, value});
+            }
+        }
+        return new BufferedResponse(response.getStatus(), response.getContentType(), headers,
+                response.getContentAsByteArray());
+    }
+
+    /**
+     * 写出响应头：本次请求处理链已设置的头优先，Vary 合并
+     */
+    void writeHeaders(HttpServletResponse response) {
+        Set<String> present = new HashSet<>();
+        for (String name : response.getHeaderNames()) {
+            present.add(name.toLowerCase(Locale.ROOT));
+        }
+        for (String[] header : headers) {
+            if (HttpHeaders.VARY.equalsIgnoreCase(header[0])) {
+                for (String name : StringUtils.tokenizeToStringArray(header[1], ",")) {
+                    addVary(response, name);
+                }
+            } else if (!present.contains(header[0].toLowerCase(Locale.ROOT))) {
+                response.addHeader(header[0], header[1]);
+            }
+        }
+    }
+
+    /**
+     * 写出状态码、内容类型与响应体（HEAD 请求不写响应体）
+     */
+    void writeContent(HttpServletResponse response, boolean writeBody) throws IOException {
+        response.setStatus(status);
+        if (contentType != null) {
+            response.setContentType(contentType);
+        }
+        response.setContentLength(body.length);
+        if (writeBody) {
+            response.getOutputStream().write(body);
+        }
+    }
+
+    static void addVary(HttpServletResponse response, String name) {
+        for (String existing : varyNames(response)) {
+            if (existing.equalsIgnoreCase(name)) {
+                return;
+            }
+        }
+        response.addHeader(HttpHeaders.VARY, name);
+    }
+
+    static List<String> varyNames(HttpServletResponse response) {
+        List<String> names = new ArrayList<>();
+        for (String value : response.getHeaders(HttpHeaders.VARY)) {
+            for (String name : StringUtils.tokenizeToStringArray(value, ",")) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+}
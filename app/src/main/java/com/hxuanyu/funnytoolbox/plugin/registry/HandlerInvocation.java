@@ -0,0 +1,13 @@
+package com.hxuanyu.funnytoolbox.plugin.registry;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.ModelAndView;
+
+/**
+ * 调用插件处理器（传入的响应可能是缓冲包装）
+ */
+@FunctionalInterface
+interface HandlerInvocation {
+
+    ModelAndView invoke(HttpServletResponse response) throws Exception;
+}
@@ -0,0 +1,306 @@
+package com.hxuanyu.funnytoolbox.plugin.registry;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * 内存映射的 ZIP 包
+ * 整个文件以只读方式映射，中央目录只解析一次；STORED 条目直接返回映射缓冲区的切片，DEFLATED 条目按需解压。
+ * 仅支持非 ZIP64 且小于 2GB 的包（前端 ZIP 插件足够），映射在对象不可达后由 GC 释放。
+ */
+final class MappedZipArchive {
+
+    private static final int EOCD_SIG = 0x06054b50;
+    private static final int CEN_SIG = 0x02014b50;
+    private static final int LOC_SIG = 0x04034b50;
+    private static final int EOCD_MIN = 22;
+    // 单个条目的最大大小：需能放入 byte[]
+    private static final long MAX_ENTRY_SIZE = Integer.MAX_VALUE - 8;
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final List<Entry> entries;
+
+    /**
+     * ZIP 条目：数据在映射缓冲区中的位置与大小
+     */
+    static final class Entry {
+        private final MappedZipArchive archive;
+        private final String name;
+        private final int method;
+        private final long crc;
+        private final int compressedSize;
+        private final int size;
+        private final int dataOffset;
+        private final long lastModified;
+
+        private Entry(MappedZipArchive archive, String name, int method, long crc,
+                      int compressedSize, int size, int dataOffset, long lastModified) {
+            this.archive = archive;
+            this.name = name;
+            this.method = method;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.dataOffset = dataOffset;
+            this.lastModified = lastModified;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        long getCrc() {
+            return crc;
+        }
+
+        int getSize() {
+            return size;
+        }
+
+        long getLastModified() {
+            return lastModified;
+        }
+
+        boolean isDirectory() {
+            return name.endsWith("/");
+        }
+
+        /**
+         * 条目原始数据（STORED 即内容，DEFLATED 为压缩数据）的只读切片
+         */
+        private ByteBuffer rawSlice() {
+            return archive.buffer.slice(dataOffset, compressedSize).asReadOnlyBuffer();
+        }
+
+        /**
+         * 读取完整内容（DEFLATED 条目在此解压）
+         */
+        byte[] readAllBytes() throws IOException {
+            byte[] out = new byte[size];
+            if (method == 0) {
+                rawSlice().get(out);
+                return out;
+            }
+            Inflater inflater = new Inflater(true);
+            try {
+                inflater.setInput(rawSlice());
+                int n = 0;
+                while (n < size && !inflater.finished()) {
+                    int r = inflater.inflate(out, n, size - n);
+                    if (r == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    n += r;
+                }
+                if (n != size) {
+                    throw new ZipException("Truncated entry " + name + " in " + archive.path);
+                }
+                return out;
+            } catch (DataFormatException e) {
+                throw new ZipException("Invalid deflate data for " + name + ": " + e.getMessage());
+            } finally {
+                inflater.end();
+            }
+        }
+
+        /**
+         * 流式读取内容，不整体载入内存
+         */
+        InputStream openStream() {
+            InputStream raw = new ByteBufferInputStream(rawSlice());
+            if (method == 0) {
+                return raw;
+            }
+            // nowrap 模式的 Inflater 需要在末尾补一个哑字节
+            InputStream padded = new SequenceInputStream(raw, new ByteArrayInputStream(new byte[1]));
+            Inflater inflater = new Inflater(true);
+            return new InflaterInputStream(padded, inflater, 8192) {
+                private boolean closed;
+
+                @Override
+                public void close() throws IOException {
+                    if (!closed) {
+                        closed = true;
+                        super.close();
+                        inflater.end();
+                    }
+                }
+            };
+        }
+    }
+
+    private MappedZipArchive(Path path, MappedByteBuffer buffer) throws IOException {
+        this.path = path;
+        this.buffer = buffer;
+        this.entries = Collections.unmodifiableList(readCentralDirectory());
+    }
+
+    static MappedZipArchive open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) {
+                throw new ZipException("Archive too large to map: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return new MappedZipArchive(path, buffer);
+        }
+    }
+
+    List<Entry> getEntries() {
+        return entries;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    private List<Entry> readCentralDirectory() throws IOException {
+        int eocd = findEndOfCentralDirectory();
+        int count = u16(eocd + 10);
+        long cenSize = u32(eocd + 12);
+        long cenOffset = u32(eocd + 16);
+        if (count == 0xFFFF || cenSize == 0xFFFFFFFFL || cenOffset == 0xFFFFFFFFL) {
+            throw new ZipException("ZIP64 archives are not supported: " + path);
+        }
+        if (cenOffset + cenSize > eocd) {
+            throw new ZipException("Central directory exceeds archive bounds in " + path);
+        }
+        List<Entry> result = new ArrayList<>(count);
+        int pos = (int) cenOffset;
+        for (int i = 0; i < count; i++) {
+            if (pos + 46 > eocd || buffer.getInt(pos) != CEN_SIG) {
+                throw new ZipException("Invalid central directory header in " + path);
+            }
+            int flags = u16(pos + 8);
+            int method = u16(pos + 10);
+            int dosTime = u16(pos + 12);
+            int dosDate = u16(pos + 14);
+            long crc = u32(pos + 16);
+            long compressedSize = u32(pos + 20);
+            long size = u32(pos + 24);
+            int nameLen = u16(pos + 28);
+            int extraLen = u16(pos + 30);
+            int commentLen = u16(pos + 32);
+            long locOffset = u32(pos + 42);
+            if ((flags & 1) != 0) {
+                throw new ZipException("Encrypted entries are not supported: " + path);
+            }
+            if (method != 0 && method != 8) {
+                throw new ZipException("Unsupported compression method " + method + " in " + path);
+            }
+            if (pos + 46 + nameLen > eocd) {
+                throw new ZipException("Invalid central directory header in " + path);
+            }
+            byte[] nameBytes = new byte[nameLen];
+            buffer.get(pos + 46, nameBytes);
+            String name = new String(nameBytes, StandardCharsets.UTF_8);
+
+            // 偏移与大小均需可用 int 表示且落在映射范围内，否则按损坏的包处理（由调用方回退）
+            if (size > MAX_ENTRY_SIZE || compressedSize > MAX_ENTRY_SIZE
+                    || (method == 0 && size != compressedSize)) {
+                throw new ZipException("Invalid size of entry " + name + " in " + path);
+            }
+            if (locOffset + 30 > cenOffset) {
+                throw new ZipException("Invalid local header offset for " + name + " in " + path);
+            }
+            int loc = (int) locOffset;
+            if (buffer.getInt(loc) != LOC_SIG) {
+                throw new ZipException("Invalid local header for " + name + " in " + path);
+            }
+            long dataOffset = (long) loc + 30 + u16(loc + 26) + u16(loc + 28);
+            if (dataOffset + compressedSize > buffer.capacity()) {
+                throw new ZipException("Entry " + name + " exceeds archive bounds in " + path);
+            }
+            result.add(new Entry(this, name, method, crc, (int) compressedSize, (int) size, (int) dataOffset,
+                    dosToMillis(dosDate, dosTime)));
+            pos += 46 + nameLen + extraLen + commentLen;
+        }
+        return result;
+    }
+
+    private int findEndOfCentralDirectory() throws ZipException {
+        int limit = Math.max(0, buffer.capacity() - EOCD_MIN - 0xFFFF);
+        for (int pos = buffer.capacity() - EOCD_MIN; pos >= limit; pos--) {
+            if (buffer.getInt(pos) == EOCD_SIG) {
+                return pos;
+            }
+        }
+        throw new ZipException("End of central directory not found: " + path);
+    }
+
+    private int u16(int pos) {
+        return buffer.getShort(pos) & 0xFFFF;
+    }
+
+    private long u32(int pos) {
+        return buffer.getInt(pos) & 0xFFFFFFFFL;
+    }
+
+    private long dosToMillis(int date, int time) {
+        try {
+            LocalDateTime t = LocalDateTime.of(((date >> 9) & 0x7f) + 1980, (date >> 5) & 0x0f, date & 0x1f,
+                    (time >> 11) & 0x1f, (time >> 5) & 0x3f, (time & 0x1f) * 2);
+            return t.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (Exception e) {
+            return path.toFile().lastModified();
+        }
+    }
+
+    /**
+     * 基于 ByteBuffer 的输入流
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buf;
+
+        private ByteBufferInputStream(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        @Override
+        public int read() {
+            return buf.hasRemaining() ? buf.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buf.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buf.remaining());
+            buf.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            int k = (int) Math.max(0, Math.min(n, buf.remaining()));
+            buf.position(buf.position() + k);
+            return k;
+        }
+
+        @Override
+        public int available() {
+            return buf.remaining();
+        }
+    }
+}
@@ -40,6 +40,23 @@ public class MenuRegistry {
         menus.removeIf(item -> item.getPluginId().equals(pluginId));
     }
 
+    /**
+     * 原子地替换插件的菜单项（蓝绿重载时使用），不存在时新增
+     */
+    public synchronized void replaceMenu(MenuItem item) {
+        boolean[] replaced = {false};
+        menus.replaceAll(existing -> {
+            if (existing.getPluginId().equals(item.getPluginId())) {
+                replaced[0] = true;
+                return item;
+            }
+            return existing;
+        });
+        if (!replaced[0]) {
+            registerMenu(item);
+        }
+    }
+
     /**
      * 获取所有菜单
      */
@@ -0,0 +1,236 @@
+package com.hxuanyu.funnytoolbox.plugin.registry;
+
+import org.springframework.core.io.AbstractResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.resource.HttpResource;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * 插件静态资源索引项
+ * 注册静态资源时为缓存目录中的每个文件创建一次，请求时直接返回，无需再访问文件系统判断是否存在。
+ * 小文件内容由 {@link AssetByteCache} 按需载入内存，大文件或未缓存时从磁盘流式读取。
+ * 存在 .gz 变体时，变体同样是一个资源项，以原文件名推断媒体类型，并携带 Content-Encoding 与 Vary 响应头。
+ * 强 ETag 与 Cache-Control 在建立索引时确定，响应头预先构建，请求时不再计算。
+ * 内容来源为缓存目录中的文件，或（映射 ZIP 模式下）内存映射 ZIP 包中的条目。
+ */
+class PluginAsset extends AbstractResource implements HttpResource {
+
+    private final String pluginId;
+    private final Path file;
+    private final MappedZipArchive.Entry zipEntry;
+    private final String filename;
+    private final long size;
+    private final long lastModified;
+    private final AssetByteCache byteCache;
+    private final String encoding;
+
+    // 以下字段仅在建立索引时设置：预压缩变体（可能为 null）、强 ETag、预先构建的响应头
+    private PluginAsset gzip;
+    private String etag;
+    private HttpHeaders responseHeaders = HttpHeaders.EMPTY;
+
+    // 由 AssetByteCache 维护：已载入的内容与最近访问时间
+    volatile byte[] bytes;
+    volatile long lastAccess;
+
+    PluginAsset(String pluginId, Path file, long size, long lastModified, AssetByteCache byteCache) {
+        this(pluginId, file, null, file.getFileName().toString(), size, lastModified, byteCache, null);
+    }
+
+    PluginAsset(String pluginId, MappedZipArchive.Entry zipEntry, AssetByteCache byteCache) {
+        this(pluginId, null, zipEntry, zipEntry.getName().substring(zipEntry.getName().lastIndexOf('/') + 1),
+                zipEntry.getSize(), zipEntry.getLastModified(), byteCache, null);
+    }
+
+    private PluginAsset(String pluginId, Path file, MappedZipArchive.Entry zipEntry, String filename, long size,
+                        long lastModified, AssetByteCache byteCache, String encoding) {
+        this.pluginId = pluginId;
+        this.file = file;
+        this.zipEntry = zipEntry;
+        this.filename = filename;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.byteCache = byteCache;
+        this.encoding = encoding;
+    }
+
+    /**
+     * 关联 gzip 预压缩资源作为本资源的变体，返回变体
+     */
+    PluginAsset attachGzip(PluginAsset gz) {
+        this.gzip = new PluginAsset(pluginId, gz.file, gz.zipEntry, filename, gz.size, gz.lastModified, byteCache, "gzip");
+        return gzip;
+    }
+
+    /**
+     * 设置内容哈希，作为强 ETag
+     */
+    void setContentHash(String contentHash) {
+        this.etag = contentHash != null ? "\"" + contentHash + "\"" : null;
+    }
+
+    /**
+     * 应用缓存策略并构建响应头（变体同样应用），在 ETag 与变体确定之后调用
+     */
+    void applyCachePolicy(String cacheControl) {
+        HttpHeaders headers = new HttpHeaders();
+        if (encoding != null) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, encoding);
+        }
+        if (encoding != null || gzip != null) {
+            headers.set(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        if (cacheControl != null) {
+            headers.set(HttpHeaders.CACHE_CONTROL, cacheControl);
+        }
+        this.responseHeaders = HttpHeaders.readOnlyHttpHeaders(headers);
+        if (gzip != null) {
+            gzip.applyCachePolicy(cacheControl);
+        }
+    }
+
+    /**
+     * 选择响应使用的资源：客户端接受 gzip 且存在变体时返回变体（两者均带 Vary: Accept-Encoding）
+     */
+    PluginAsset select(String acceptEncoding) {
+        PluginAsset variant = gzip;
+        if (variant != null && acceptsGzip(acceptEncoding)) {
+            return variant;
+        }
+        return this;
+    }
+
+    /**
+     * 按 Accept-Encoding 判断是否接受 gzip：显式的 gzip / x-gzip 优先，否则看 *；q=0 表示不接受
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean wildcard = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            boolean acceptable = qualityOf(parts) > 0;
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                return acceptable;
+            }
+            if (name.equals("*")) {
+                wildcard = acceptable;
+            }
+        }
+        return wildcard != null && wildcard;
+    }
+
+    private static double qualityOf(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String param = parts[i].trim();
+            if (param.length() > 2 && (param.charAt(0) == 'q' || param.charAt(0) == 'Q') && param.charAt(1) == '=') {
+                try {
+                    return Double.parseDouble(param.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    String getEtag() {
+        return etag;
+    }
+
+    String getPluginId() {
+        return pluginId;
+    }
+
+    /**
+     * 缓存目录中的文件；映射 ZIP 条目返回 null
+     */
+    Path getPath() {
+        return file;
+    }
+
+    /**
+     * 读取完整内容（载入内存缓存时使用）
+     */
+    byte[] readAllBytes() throws IOException {
+        return zipEntry != null ? zipEntry.readAllBytes() : Files.readAllBytes(file);
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    public boolean isReadable() {
+        return true;
+    }
+
+    @Override
+    public boolean isFile() {
+        return file != null;
+    }
+
+    @Override
+    public File getFile() throws IOException {
+        if (file == null) {
+            throw new FileNotFoundException(getDescription() + " is not a file");
+        }
+        return file.toFile();
+    }
+
+    @Override
+    public long contentLength() {
+        return size;
+    }
+
+    @Override
+    public long lastModified() {
+        return lastModified;
+    }
+
+    @Override
+    public String getFilename() {
+        return filename;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        byte[] content = byteCache.get(this);
+        if (content != null) {
+            return new ByteArrayInputStream(content);
+        }
+        return zipEntry != null ? zipEntry.openStream() : Files.newInputStream(file);
+    }
+
+    @Override
+    public HttpHeaders getResponseHeaders() {
+        return responseHeaders;
+    }
+
+    @Override
+    public String getDescription() {
+        String source = zipEntry != null ? zipEntry.getName() : String.valueOf(file);
+        return "plugin asset [" + pluginId + "] " + source + (encoding != null ? " (" + encoding + ")" : "");
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other;
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(this);
+    }
+}
@@ -0,0 +1,182 @@
+package com.hxuanyu.funnytoolbox.plugin.registry;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * 插件静态资源零拷贝输出
+ * 支持条件请求（ETag / Last-Modified）、单段与多段 Range（206 Partial Content），文件内容不经过堆内存：
+ * Tomcat 支持 sendfile 时交由容器通过 sendfile 发送，否则使用 FileChannel.transferTo 写入响应通道。
+ */
+final class PluginAssetTransfer {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private PluginAssetTransfer() {
+    }
+
+    static void write(PluginAsset asset, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long length = asset.contentLength();
+        // Vary 与 Cache-Control 在 304 响应中同样需要
+        HttpHeaders headers = asset.getResponseHeaders();
+        headers.getVary().forEach(v -> response.addHeader(HttpHeaders.VARY, v));
+        if (headers.getCacheControl() != null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, headers.getCacheControl());
+        }
+        if (new ServletWebRequest(request, response).checkNotModified(asset.getEtag(), asset.lastModified())) {
+            return;
+        }
+
+        MediaType mediaType = MediaTypeFactory.getMediaType(asset.getFilename()).orElse(MediaType.APPLICATION_OCTET_STREAM);
+        headers.forEach((name, values) -> {
+            if (!HttpHeaders.VARY.equalsIgnoreCase(name) && !HttpHeaders.CACHE_CONTROL.equalsIgnoreCase(name)) {
+                values.forEach(v -> response.addHeader(name, v));
+            }
+        });
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        List<HttpRange> ranges = parseRanges(asset, request);
+        if (ranges == null) {
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            return;
+        }
+        boolean head = "HEAD".equals(request.getMethod());
+
+        if (ranges.isEmpty()) {
+            response.setContentType(mediaType.toString());
+            response.setContentLengthLong(length);
+            if (!head) {
+                transfer(asset, request, response, 0, length);
+            }
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        if (ranges.size() == 1) {
+            long start = ranges.get(0).getRangeStart(length);
+            long end = ranges.get(0).getRangeEnd(length);
+            response.setContentType(mediaType.toString());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            response.setContentLengthLong(end - start + 1);
+            if (!head) {
+                transfer(asset, request, response, start, end - start + 1);
+            }
+            return;
+        }
+
+        // 多段：multipart/byteranges，逐段写入
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        if (head) {
+            return;
+        }
+        ServletOutputStream out = response.getOutputStream();
+        try (FileChannel channel = FileChannel.open(asset.getPath(), StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            for (HttpRange range : ranges) {
+                long start = range.getRangeStart(length);
+                long end = range.getRangeEnd(length);
+                out.write(("\r\n--" + boundary + "\r\n"
+                        + HttpHeaders.CONTENT_TYPE + ": " + mediaType + "\r\n"
+                        + HttpHeaders.CONTENT_RANGE + ": bytes " + start + "-" + end + "/" + length + "\r\n\r\n")
+                        .getBytes(StandardCharsets.US_ASCII));
+                transferTo(channel, target, start, end - start + 1);
+            }
+            out.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    /**
+     * 解析 Range：无 Range、If-Range 不匹配或范围总和超过文件长度时返回空列表（返回完整内容），不可满足时返回 null
+     */
+    private static List<HttpRange> parseRanges(PluginAsset asset, HttpServletRequest request) {
+        String header = request.getHeader(HttpHeaders.RANGE);
+        if (header == null || !ifRangeMatches(asset, request)) {
+            return List.of();
+        }
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(header);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        long length = asset.contentLength();
+        long total = 0;
+        for (HttpRange range : ranges) {
+            long start;
+            long end;
+            try {
+                start = range.getRangeStart(length);
+                end = range.getRangeEnd(length);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+            if (start >= length || start > end) {
+                return null;
+            }
+            total += end - start + 1;
+        }
+        return ranges.size() > 1 && total > length ? List.of() : ranges;
+    }
+
+    private static boolean ifRangeMatches(PluginAsset asset, HttpServletRequest request) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(asset.getEtag());
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == asset.lastModified() / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static void transfer(PluginAsset asset, HttpServletRequest request, HttpServletResponse response,
+                                 long start, long count) throws IOException {
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // 交由 Tomcat 在请求处理结束后通过 sendfile 发送
+            request.setAttribute(SENDFILE_FILENAME, asset.getPath().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(asset.getPath(), StandardOpenOption.READ)) {
+            transferTo(channel, Channels.newChannel(response.getOutputStream()), start, count);
+        }
+    }
+
+    private static void transferTo(FileChannel channel, WritableByteChannel target, long start, long count) throws IOException {
+        long position = start;
+        long remaining = count;
+        while (remaining > 0) {
+            long n = channel.transferTo(position, remaining, target);
+            if (n <= 0) {
+                break;
+            }
+            position += n;
+            remaining -= n;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.hxuanyu.funnytoolbox.plugin.registry;
+
+import com.hxuanyu.funnytoolbox.plugin.core.ApiPrefixTrie;
+import com.hxuanyu.funnytoolbox.plugin.model.PluginException;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.StringUtils;
+import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.handler.AbstractHandlerMapping;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 插件请求分派映射
+ * 排在平台 RequestMappingHandlerMapping 之前：先按 API 前缀定位插件，再只在该插件的路由表中匹配，
+ * 匹配开销与已加载插件的路由总数无关；插件路由不进入平台映射，注册与注销也不再争用其注册表锁。
+ * 前缀索引与各插件路由表组成不可变快照，启用、禁用或切换代次时整体替换。
+ * 未命中插件前缀或插件路由时返回 null，由后续映射（平台控制器、静态资源）处理。
+ */
+@Slf4j
+public class PluginDispatchHandlerMapping extends AbstractHandlerMapping {
+
+    private final RequestMappingHandlerMapping platformMapping;
+
+    private volatile Snapshot snapshot = new Snapshot(ApiPrefixTrie.EMPTY, Map.of());
+
+    /**
+     * @param platformMapping 平台映射，路由表沿用其路径解析、内容协商与跨域配置
+     */
+    public PluginDispatchHandlerMapping(RequestMappingHandlerMapping platformMapping) {
+        this.platformMapping = platformMapping;
+        copyPathConfig(this);
+        setCorsProcessor(platformMapping.getCorsProcessor());
+        if (platformMapping.getCorsConfigurationSource() != null) {
+            setCorsConfigurationSource(platformMapping.getCorsConfigurationSource());
+        }
+    }
+
+    /**
+     * 创建插件某一代次的空路由表（注册完成后调用 {@link #publish} 生效）
+     * 前缀在此规范化：未配置时为 /api/{pluginId}，以 "/" 开头、不以 "/" 结尾。
+     */
+    PluginRouteTable createTable(String pluginId, long generation, String apiPrefix) {
+        if (!StringUtils.hasText(pluginId)) {
+            throw new PluginException("Cannot create route table without plugin id");
+        }
+        PluginRouteTable table = new PluginRouteTable(pluginId, generation, normalizePrefix(pluginId, apiPrefix));
+        copyPathConfig(table);
+        table.setContentNegotiationManager(platformMapping.getContentNegotiationManager());
+        return table;
+    }
+
+    /**
+     * 创建路由映射信息时使用的配置（与平台映射一致的路径解析与内容协商）
+     */
+    RequestMappingInfo.BuilderConfiguration getBuilderConfiguration() {
+        return platformMapping.getBuilderConfiguration();
+    }
+
+    /**
+     * 发布插件的路由表，替换该插件当前生效的路由表；table 为 null 时移除插件的路由
+     */
+    synchronized void publish(String pluginId, PluginRouteTable table) {
+        Map<String, PluginRouteTable> tables = new HashMap<>(snapshot.tables);
+        if (table != null) {
+            tables.put(pluginId, table);
+        } else {
+            tables.remove(pluginId);
+        }
+        snapshot = Snapshot.of(tables);
+    }
+
+    /**
+     * 撤下路由表（仅当其仍是插件当前生效的路由表时）
+     */
+    synchronized boolean unpublish(PluginRouteTable table) {
+        if (snapshot.tables.get(table.getPluginId()) != table) {
+            return false;
+        }
+        Map<String, PluginRouteTable> tables = new HashMap<>(snapshot.tables);
+        tables.remove(table.getPluginId());
+        snapshot = Snapshot.of(tables);
+        return true;
+    }
+
+    @Override
+    protected Object getHandlerInternal(HttpServletRequest request) throws Exception {
+        PluginRouteTable table = tableFor(request);
+        return table != null ? table.lookup(request) : null;
+    }
+
+    @Override
+    protected boolean hasCorsConfigurationSource(Object handler) {
+        return super.hasCorsConfigurationSource(handler) || handler instanceof HandlerMethod;
+    }
+
+    @Override
+    protected CorsConfiguration getCorsConfiguration(Object handler, HttpServletRequest request) {
+        CorsConfiguration config = super.getCorsConfiguration(handler, request);
+        PluginRouteTable table = tableFor(request);
+        if (table != null) {
+            CorsConfiguration handlerConfig = table.corsConfigurationFor(handler, request);
+            config = config != null ? config.combine(handlerConfig) : handlerConfig;
+        }
+        return config;
+    }
+
+    private PluginRouteTable tableFor(HttpServletRequest request) {
+        Snapshot current = snapshot;
+        if (current.tables.isEmpty()) {
+            return null;
+        }
+        String pluginId = current.prefixes.match(initLookupPath(request));
+        return pluginId != null ? current.tables.get(pluginId) : null;
+    }
+
+    private static String normalizePrefix(String pluginId, String apiPrefix) {
+        String prefix = StringUtils.hasText(apiPrefix) ? apiPrefix.trim() : "/api/" + pluginId;
+        while (prefix.endsWith("/")) {
+            prefix = prefix.substring(0, prefix.length() - 1);
+        }
+        if (prefix.isEmpty()) {
+            throw new PluginException("Invalid API prefix of plugin " + pluginId + ": " + apiPrefix);
+        }
+        return prefix.startsWith("/") ? prefix : "/" + prefix;
+    }
+
+    private void copyPathConfig(AbstractHandlerMapping target) {
+        target.setPatternParser(platformMapping.getPatternParser());
+        target.setUrlPathHelper(platformMapping.getUrlPathHelper());
+        target.setPathMatcher(platformMapping.getPathMatcher());
+    }
+
+    /**
+     * 前缀索引与路由表快照（不可变）
+     */
+    private record Snapshot(ApiPrefixTrie prefixes, Map<String, PluginRouteTable> tables) {
+
+        static Snapshot of(Map<String, PluginRouteTable> tables) {
+            Map<String, String> prefixes = new HashMap<>();
+            tables.forEach((pluginId, table) -> prefixes.put(pluginId, table.getApiPrefix()));
+            return new Snapshot(ApiPrefixTrie.build(prefixes, null), Map.copyOf(tables));
+        }
+    }
+}
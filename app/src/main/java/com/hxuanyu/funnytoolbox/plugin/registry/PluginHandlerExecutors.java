@@ -0,0 +1,182 @@
+package com.hxuanyu.funnytoolbox.plugin.registry;
+
+import com.hxuanyu.funnytoolbox.plugin.model.PluginDescriptor;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 插件 API 处理器的虚拟线程执行器
+ * 启用虚拟线程模式的插件，其控制器方法由 {@link PluginRequestMappingHandlerAdapter} 提交到该插件专属的
+ * 虚拟线程执行器中执行（线程名 plugin-{pluginId}-vt-N），容器线程在方法执行期间被释放。
+ * 可选的载体线程钉住诊断基于 JFR 的 jdk.VirtualThreadPinned 事件，按插件统计并输出调用栈。
+ */
+@Component
+@Slf4j
+public class PluginHandlerExecutors {
+
+    private static final String THREAD_PREFIX = "plugin-";
+    private static final String THREAD_SUFFIX = "-vt-";
+
+    @Value("${platform.plugin.virtual-threads.enabled:false}")
+    private boolean enabledByDefault;
+
+    @Value("${platform.plugin.virtual-threads.timeout-ms:0}")
+    private long timeoutMs;
+
+    @Value("${platform.plugin.virtual-threads.pinning-diagnostics.enabled:false}")
+    private boolean pinningDiagnostics;
+
+    @Value("${platform.plugin.virtual-threads.pinning-diagnostics.threshold-ms:20}")
+    private long pinningThresholdMs;
+
+    // 控制器类 -> 所属插件的执行器（每次加载的控制器类由不同类加载器定义，蓝绿并存时互不影响）
+    private final Map<Class<?>, AsyncTaskExecutor> bindings = new ConcurrentHashMap<>();
+
+    // pluginId -> 虚拟线程执行器
+    private final Map<String, ExecutorService> executors = new ConcurrentHashMap<>();
+
+    // pluginId -> 钉住事件次数
+    private final Map<String, LongAdder> pinnedCounts = new ConcurrentHashMap<>();
+
+    private RecordingStream pinningStream;
+
+    @PostConstruct
+    public void start() {
+        if (!pinningDiagnostics) {
+            return;
+        }
+        try {
+            RecordingStream stream = new RecordingStream();
+            stream.enable("jdk.VirtualThreadPinned")
+                    .withThreshold(Duration.ofMillis(pinningThresholdMs))
+                    .withStackTrace();
+            stream.onEvent("jdk.VirtualThreadPinned", event -> {
+                RecordedThread thread = event.getThread();
+                String threadName = thread != null ? thread.getJavaName() : null;
+                String pluginId = pluginIdOf(threadName);
+                if (pluginId == null) {
+                    return;
+                }
+                pinnedCounts.computeIfAbsent(pluginId, k -> new LongAdder()).increment();
+                log.warn("Virtual thread {} of plugin {} was pinned to its carrier for {} ms at {}",
+                        threadName, pluginId, event.getDuration().toMillis(), topFrames(event.getStackTrace()));
+            });
+            stream.startAsync();
+            pinningStream = stream;
+            log.info("Virtual thread pinning diagnostics enabled (threshold {} ms)", pinningThresholdMs);
+        } catch (Exception e) {
+            log.warn("Failed to start virtual thread pinning diagnostics: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (pinningStream != null) {
+            pinningStream.close();
+        }
+        executors.values().forEach(ExecutorService::shutdown);
+    }
+
+    /**
+     * 插件是否以虚拟线程执行 API 处理器：plugin.yml 中 api.virtualThreads 优先，其次为平台配置
+     */
+    public boolean isEnabledFor(PluginDescriptor descriptor) {
+        PluginDescriptor.ApiConfig api = descriptor.getApi();
+        if (api != null && api.getVirtualThreads() != null) {
+            return api.getVirtualThreads();
+        }
+        return enabledByDefault;
+    }
+
+    /**
+     * 将控制器绑定到插件的虚拟线程执行器（注册路由时调用）
+     */
+    public void bind(String pluginId, Object controller) {
+        ExecutorService executor = executors.computeIfAbsent(pluginId, id ->
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(THREAD_PREFIX + id + THREAD_SUFFIX, 0).factory()));
+        bindings.put(ClassUtils.getUserClass(controller), new TaskExecutorAdapter(executor));
+    }
+
+    /**
+     * 解除控制器绑定（注销路由时调用）
+     */
+    public void unbind(Object controller) {
+        bindings.remove(ClassUtils.getUserClass(controller));
+    }
+
+    /**
+     * 释放插件的执行器（插件卸载后调用），已提交的任务继续执行完毕
+     */
+    public void release(String pluginId) {
+        ExecutorService executor = executors.remove(pluginId);
+        if (executor != null) {
+            executor.shutdown();
+        }
+        pinnedCounts.remove(pluginId);
+    }
+
+    /**
+     * 控制器类对应的执行器，未启用虚拟线程时返回 null
+     */
+    AsyncTaskExecutor executorFor(Class<?> controllerType) {
+        return bindings.get(controllerType);
+    }
+
+    /**
+     * 异步处理超时（毫秒），<= 0 表示不超时
+     */
+    long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    /**
+     * 插件虚拟线程被钉住的次数（仅在开启诊断时统计）
+     */
+    public long getPinnedCount(String pluginId) {
+        LongAdder count = pinnedCounts.get(pluginId);
+        return count != null ? count.sum() : 0;
+    }
+
+    private static String pluginIdOf(String threadName) {
+        if (threadName == null || !threadName.startsWith(THREAD_PREFIX)) {
+            return null;
+        }
+        int end = threadName.lastIndexOf(THREAD_SUFFIX);
+        return end > THREAD_PREFIX.length() ? threadName.substring(THREAD_PREFIX.length(), end) : null;
+    }
+
+    private static String topFrames(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return "<no stack trace>";
+        }
+        // 跳过 JDK 内部的停车/阻塞帧，输出最靠近插件代码的调用栈
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        return frames.stream()
+                .filter(f -> {
+                    String type = f.getMethod().getType().getName();
+                    return !type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.");
+                })
+                .limit(8)
+                .map(f -> f.getMethod().getType().getName() + "." + f.getMethod().getName() + ":" + f.getLineNumber())
+                .collect(Collectors.joining(" <- "));
+    }
+}
@@ -0,0 +1,188 @@
+package com.hxuanyu.funnytoolbox.plugin.registry;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 插件请求合并（single-flight）
+ * plugin.yml 的 api.coalesce 声明的 GET 路由，相同路径与查询参数的并发请求只执行一次处理器：
+ * 首个请求执行并缓冲响应，执行期间到达的相同请求等待其完成后共享该响应；执行结束即丢弃，不保留缓存数据。
+ * 执行失败、非 200 响应、带 Set-Cookie 或 Vary: * 的响应或等待超时时，等待中的请求各自执行处理器。
+ * 首个请求的 Accept、Accept-Language 及响应 Vary 头列出的请求头取值随执行结果一并记录，
+ * 取值不同的等待请求（如协商出不同表示、不同会话）不共享响应，各自执行处理器。
+ * 合并的请求在所有客户端间共享响应，仅适用于与用户无关的接口。
+ */
+@Component
+@Slf4j
+public class PluginRequestCoalescer {
+
+    private static final String[] NO_NAMES = new String[0];
+
+    // 内容协商使用、但不会写入 Vary 的请求头
+    private static final List<String> IMPLICIT_VARY = List.of(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_LANGUAGE);
+
+    @Value("${platform.plugin.coalescing.wait-timeout-ms:30000}")
+    private long waitTimeoutMs;
+
+    // 处理器方法 -> 合并路由
+    private final Map<Method, Route> routes = new ConcurrentHashMap<>();
+
+    /**
+     * 登记处理器方法的请求合并（注册路由时调用）
+     */
+    void register(String pluginId, Object controller, Method method) {
+        if (PluginRequestMappingHandlerAdapter.isAsyncReturnType(method.getReturnType())) {
+            log.warn("Request coalescing ignored on {}.{}: asynchronous return types are not supported",
+                    method.getDeclaringClass().getSimpleName(), method.getName());
+            return;
+        }
+        routes.put(method, new Route(ClassUtils.getUserClass(controller)));
+        log.info("Request coalescing enabled for plugin {}: {}.{}",
+                pluginId, method.getDeclaringClass().getSimpleName(), method.getName());
+    }
+
+    /**
+     * 注销控制器的请求合并（注销路由时调用），进行中的执行照常完成
+     */
+    public void unbind(Object controller) {
+        Class<?> controllerType = ClassUtils.getUserClass(controller);
+        routes.values().removeIf(route -> route.controllerType == controllerType);
+    }
+
+    /**
+     * 处理器方法的合并路由，未声明合并时返回 null
+     */
+    Route routeFor(HandlerMethod handlerMethod) {
+        return routes.isEmpty() ? null : routes.get(handlerMethod.getMethod());
+    }
+
+    /**
+     * 合并执行：已有相同请求在执行时等待并共享其响应，否则由本请求执行并缓冲响应
+     */
+    ModelAndView handle(Route route, HttpServletRequest request, HttpServletResponse response,
+                        HandlerInvocation invocation) throws Exception {
+        if (!HttpMethod.GET.matches(request.getMethod())) {
+            return invocation.invoke(response);
+        }
+
+        String key = RequestKeys.of(request, NO_NAMES, NO_NAMES);
+        Flight flight = new Flight();
+        Flight leader = route.inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            BufferedResponse shared = leader.await(request, waitTimeoutMs);
+            if (shared != null) {
+                shared.writeHeaders(response);
+                shared.writeContent(response, true);
+                return null;
+            }
+            return invocation.invoke(response);
+        }
+
+        BufferedResponse result = null;
+        Map<String, String> varyValues = null;
+        try {
+            ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+            ModelAndView mav = invocation.invoke(wrapper);
+            if (mav == null && wrapper.getStatus() == HttpServletResponse.SC_OK
+                    && !wrapper.containsHeader(HttpHeaders.SET_COOKIE)) {
+                varyValues = varyValues(request, wrapper);
+                if (varyValues != null) {
+                    result = BufferedResponse.capture(wrapper);
+                }
+            }
+            wrapper.copyBodyToResponse();
+            return mav;
+        } finally {
+            route.inFlight.remove(key, flight);
+            flight.complete(result, varyValues);
+        }
+    }
+
+    /**
+     * 首个请求中响应所依赖的请求头取值（隐式协商头与响应 Vary 头），响应带 Vary: * 时返回 null（不可共享）
+     */
+    private static Map<String, String> varyValues(HttpServletRequest request, HttpServletResponse response) {
+        Map<String, String> values = new HashMap<>();
+        for (String name : IMPLICIT_VARY) {
+            values.put(name, RequestKeys.headerValue(request, name));
+        }
+        for (String name : BufferedResponse.varyNames(response)) {
+            if ("*".equals(name)) {
+                return null;
+            }
+            values.put(name, RequestKeys.headerValue(request, name));
+        }
+        return values;
+    }
+
+    /**
+     * 声明了请求合并的路由
+     */
+    static class Route {
+
+        private final Class<?> controllerType;
+        // 规范化的请求键 -> 进行中的执行
+        private final Map<String, Flight> inFlight = new ConcurrentHashMap<>();
+
+        Route(Class<?> controllerType) {
+            this.controllerType = controllerType;
+        }
+    }
+
+    /**
+     * 一次进行中的执行
+     */
+    private static class Flight {
+
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile BufferedResponse result;
+        // 请求头 -> 首个请求中的取值
+        private volatile Map<String, String> varyValues;
+
+        void complete(BufferedResponse result, Map<String, String> varyValues) {
+            this.varyValues = varyValues;
+            this.result = result;
+            done.countDown();
+        }
+
+        /**
+         * 等待执行完成，返回可与该请求共享的响应；不可共享、请求头取值不同、超时或被中断时返回 null
+         */
+        BufferedResponse await(HttpServletRequest request, long timeoutMs) {
+            try {
+                if (done.await(timeoutMs, TimeUnit.MILLISECONDS) && result != null && matches(request)) {
+                    return result;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }
+
+        private boolean matches(HttpServletRequest request) {
+            for (Map.Entry<String, String> e : varyValues.entrySet()) {
+                if (!e.getValue().equals(RequestKeys.headerValue(request, e.getKey()))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
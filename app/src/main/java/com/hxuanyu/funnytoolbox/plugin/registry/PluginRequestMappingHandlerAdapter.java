@@ -0,0 +1,94 @@
+package com.hxuanyu.funnytoolbox.plugin.registry;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.ServletInvocableHandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * 支持虚拟线程执行插件处理器的 RequestMappingHandlerAdapter
+ * 参数仍在容器线程上解析；控制器方法本身包装为 WebAsyncTask 提交到插件的虚拟线程执行器，
+ * 由 Spring MVC 的异步处理机制在完成后重新分派并处理返回值（请求上下文由 Spring 传递到执行线程）。
+ * 自身已返回异步类型（Callable、DeferredResult、CompletionStage 等）的方法保持原样。
+ * 声明了响应缓存或请求合并的方法依次经 {@link PluginResponseCache}、{@link PluginRequestCoalescer} 处理，
+ * 缓存命中或共享进行中的执行时不调用处理器；这类方法在容器线程上同步执行，以便在处理器返回后取得完整响应。
+ */
+public class PluginRequestMappingHandlerAdapter extends RequestMappingHandlerAdapter {
+
+    private final PluginHandlerExecutors handlerExecutors;
+    private final PluginResponseCache responseCache;
+    private final PluginRequestCoalescer requestCoalescer;
+
+    public PluginRequestMappingHandlerAdapter(PluginHandlerExecutors handlerExecutors, PluginResponseCache responseCache,
+                                              PluginRequestCoalescer requestCoalescer) {
+        this.handlerExecutors = handlerExecutors;
+        this.responseCache = responseCache;
+        this.requestCoalescer = requestCoalescer;
+    }
+
+    @Override
+    protected ModelAndView handleInternal(HttpServletRequest request, HttpServletResponse response,
+                                          HandlerMethod handlerMethod) throws Exception {
+        PluginResponseCache.Policy policy = responseCache.policyFor(handlerMethod);
+        PluginRequestCoalescer.Route route = requestCoalescer.routeFor(handlerMethod);
+        if (policy == null && route == null) {
+            return super.handleInternal(request, response, handlerMethod);
+        }
+        HandlerInvocation invocation = buffered -> super.handleInternal(request, buffered, handlerMethod);
+        if (route != null) {
+            HandlerInvocation handler = invocation;
+            invocation = buffered -> requestCoalescer.handle(route, request, buffered, handler);
+        }
+        return policy != null ? responseCache.handle(policy, request, response, invocation) : invocation.invoke(response);
+    }
+
+    @Override
+    protected ServletInvocableHandlerMethod createInvocableHandlerMethod(HandlerMethod handlerMethod) {
+        AsyncTaskExecutor executor = handlerExecutors.executorFor(handlerMethod.getBeanType());
+        if (executor == null || isAsyncReturnType(handlerMethod.getReturnType().getParameterType())
+                || responseCache.policyFor(handlerMethod) != null || requestCoalescer.routeFor(handlerMethod) != null) {
+            return super.createInvocableHandlerMethod(handlerMethod);
+        }
+        return new VirtualThreadHandlerMethod(handlerMethod, executor, handlerExecutors.getTimeoutMs());
+    }
+
+    static boolean isAsyncReturnType(Class<?> type) {
+        return Callable.class.isAssignableFrom(type)
+                || WebAsyncTask.class.isAssignableFrom(type)
+                || DeferredResult.class.isAssignableFrom(type)
+                || CompletionStage.class.isAssignableFrom(type)
+                || ResponseBodyEmitter.class.isAssignableFrom(type)
+                || StreamingResponseBody.class.isAssignableFrom(type);
+    }
+
+    /**
+     * 在插件虚拟线程上调用控制器方法
+     */
+    private static class VirtualThreadHandlerMethod extends ServletInvocableHandlerMethod {
+
+        private final AsyncTaskExecutor executor;
+        private final long timeoutMs;
+
+        VirtualThreadHandlerMethod(HandlerMethod handlerMethod, AsyncTaskExecutor executor, long timeoutMs) {
+            super(handlerMethod);
+            this.executor = executor;
+            this.timeoutMs = timeoutMs;
+        }
+
+        @Override
+        protected Object doInvoke(Object... args) throws Exception {
+            Callable<Object> invocation = () -> super.doInvoke(args);
+            return new WebAsyncTask<>(timeoutMs, executor, invocation);
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package com.hxuanyu.funnytoolbox.plugin.registry;
+
+import com.hxuanyu.toolbox.plugin.api.PlatformCacheable;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 插件响应缓存
+ * RouteRegistry 注册路由时为标注了 {@link PlatformCacheable} 的 GET 方法登记缓存策略，
+ * 由 {@link PluginRequestMappingHandlerAdapter} 在调用处理器前查找缓存、未命中时缓冲并保存响应。
+ * 缓存条目挂在处理器方法的策略上：插件禁用、重载或卸载时随路由注销整体清除，蓝绿重载的新版本不会读到旧版本的内容。
+ * 按总字节数限制容量，超出时先清除过期条目，再按最近访问时间淘汰（近似 LRU）。
+ * 响应带有策略未声明的 Vary 头时，记录这些请求头的取值，仅对取值相同的请求命中。
+ */
+@Component
+@Slf4j
+public class PluginResponseCache {
+
+    @Value("${platform.plugin.response-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${platform.plugin.response-cache.max-bytes:16777216}")
+    private long maxBytes;
+
+    @Value("${platform.plugin.response-cache.max-entry-size:262144}")
+    private long maxEntrySize;
+
+    // 处理器方法 -> 缓存策略
+    private final Map<Method, Policy> policies = new ConcurrentHashMap<>();
+
+    // 全部缓存条目，用于容量控制与淘汰
+    private final Set<Entry> resident = ConcurrentHashMap.newKeySet();
+    private long usedBytes;
+
+    /**
+     * 登记处理器方法的缓存策略（注册路由时调用）
+     */
+    void register(String pluginId, Object controller, Method method, PlatformCacheable cacheable) {
+        if (!enabled || cacheable.ttl() <= 0) {
+            return;
+        }
+        if (PluginRequestMappingHandlerAdapter.isAsyncReturnType(method.getReturnType())) {
+            log.warn("@PlatformCacheable ignored on {}.{}: asynchronous return types are not cacheable",
+                    method.getDeclaringClass().getSimpleName(), method.getName());
+            return;
+        }
+        policies.put(method, new Policy(ClassUtils.getUserClass(controller), cacheable));
+        log.info("Response cache enabled for plugin {}: {}.{} (ttl {}s)",
+                pluginId, method.getDeclaringClass().getSimpleName(), method.getName(), cacheable.ttl());
+    }
+
+    /**
+     * 注销控制器的缓存策略并清除其全部缓存内容（注销路由时调用）
+     */
+    public synchronized void unbind(Object controller) {
+        Class<?> controllerType = ClassUtils.getUserClass(controller);
+        policies.values().removeIf(policy -> {
+            if (policy.controllerType != controllerType) {
+                return false;
+            }
+            policy.retired = true;
+            policy.entries.values().forEach(this::drop);
+            policy.entries.clear();
+            return true;
+        });
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * 处理器方法的缓存策略，未声明缓存时返回 null
+     */
+    Policy policyFor(HandlerMethod handlerMethod) {
+        return policies.isEmpty() ? null : policies.get(handlerMethod.getMethod());
+    }
+
+    /**
+     * 按缓存策略处理请求：命中时直接写出缓存内容，否则调用处理器并缓冲保存响应
+     */
+    ModelAndView handle(Policy policy, HttpServletRequest request, HttpServletResponse response,
+                        HandlerInvocation invocation) throws Exception {
+        boolean get = HttpMethod.GET.matches(request.getMethod());
+        if (!get && !HttpMethod.HEAD.matches(request.getMethod())) {
+            return invocation.invoke(response);
+        }
+
+        String key = RequestKeys.of(request, policy.keyParams, policy.vary);
+        Entry cached = policy.entries.get(key);
+        if (cached != null) {
+            if (System.nanoTime() - cached.expiresAt >= 0) {
+                remove(cached);
+            } else if (cached.matchesVary(request)) {
+                cached.lastAccess = System.nanoTime();
+                writeCached(cached, request, response, get);
+                return null;
+            }
+        }
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        for (String name : policy.vary) {
+            BufferedResponse.addVary(wrapper, name);
+        }
+        ModelAndView mav = invocation.invoke(wrapper);
+        if (mav != null) {
+            // 视图渲染发生在处理器返回之后，不缓存
+            wrapper.copyBodyToResponse();
+            return mav;
+        }
+
+        String etag = null;
+        if (wrapper.getStatus() == HttpServletResponse.SC_OK) {
+            etag = wrapper.getHeader(HttpHeaders.ETAG);
+            if (!StringUtils.hasText(etag)) {
+                etag = "\"0" + DigestUtils.md5DigestAsHex(wrapper.getContentAsByteArray()) + "\"";
+                wrapper.setHeader(HttpHeaders.ETAG, etag);
+            }
+            if (get && isCacheable(wrapper)) {
+                store(policy, key, request, wrapper, etag);
+            }
+        }
+        if (etag != null && etagMatches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            // 丢弃缓冲的响应体
+            wrapper.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return null;
+        }
+        wrapper.copyBodyToResponse();
+        return null;
+    }
+
+    private void writeCached(Entry cached, HttpServletRequest request, HttpServletResponse response,
+                             boolean writeBody) throws Exception {
+        cached.response.writeHeaders(response);
+        response.setHeader(HttpHeaders.ETAG, cached.etag);
+        response.setHeader(HttpHeaders.AGE,
+                String.valueOf(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - cached.storedAt)));
+        if (etagMatches(request.getHeader(HttpHeaders.IF_NONE_MATCH), cached.etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        cached.response.writeContent(response, writeBody);
+    }
+
+    private boolean isCacheable(ContentCachingResponseWrapper response) {
+        int size = response.getContentSize();
+        if (size > maxEntrySize || size > maxBytes || response.containsHeader(HttpHeaders.SET_COOKIE)) {
+            return false;
+        }
+        for (String value : response.getHeaders(HttpHeaders.CACHE_CONTROL)) {
+            String directives = value.toLowerCase(Locale.ROOT);
+            if (directives.contains("no-store") || directives.contains("private")) {
+                return false;
+            }
+        }
+        return !BufferedResponse.varyNames(response).contains("*");
+    }
+
+    private void store(Policy policy, String key, HttpServletRequest request,
+                       ContentCachingResponseWrapper response, String etag) {
+        // 策略未声明的 Vary 头：记录本次请求的取值
+        Map<String, String> extraVary = null;
+        for (String name : BufferedResponse.varyNames(response)) {
+            if (!policy.varies(name)) {
+                if (extraVary == null) {
+                    extraVary = new HashMap<>();
+                }
+                extraVary.put(name, RequestKeys.headerValue(request, name));
+            }
+        }
+
+        long now = System.nanoTime();
+        Entry entry = new Entry(policy, key, BufferedResponse.capture(response), etag, extraVary,
+                now, now + policy.ttlNanos);
+        synchronized (this) {
+            if (policy.retired) {
+                return;
+            }
+            Entry previous = policy.entries.put(key, entry);
+            if (previous != null) {
+                drop(previous);
+            }
+            resident.add(entry);
+            usedBytes += entry.size();
+            evictIfNeeded();
+        }
+    }
+
+    private synchronized void remove(Entry entry) {
+        if (entry.policy.entries.remove(entry.key, entry)) {
+            drop(entry);
+        }
+    }
+
+    private void evictIfNeeded() {
+        if (usedBytes <= maxBytes) {
+            return;
+        }
+        long now = System.nanoTime();
+        resident.removeIf(entry -> {
+            if (now - entry.expiresAt < 0) {
+                return false;
+            }
+            entry.policy.entries.remove(entry.key, entry);
+            usedBytes -= entry.size();
+            return true;
+        });
+        while (usedBytes > maxBytes && !resident.isEmpty()) {
+            Entry oldest = null;
+            for (Entry entry : resident) {
+                if (oldest == null || entry.lastAccess < oldest.lastAccess) {
+                    oldest = entry;
+                }
+            }
+            oldest.policy.entries.remove(oldest.key, oldest);
+            drop(oldest);
+        }
+    }
+
+    private void drop(Entry entry) {
+        if (resident.remove(entry)) {
+            usedBytes -= entry.size();
+        }
+    }
+
+    static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        String tag = stripWeak(etag);
+        for (String candidate : StringUtils.tokenizeToStringArray(ifNoneMatch, ",")) {
+            if ("*".equals(candidate) || stripWeak(candidate).equals(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    /**
+     * 处理器方法的缓存策略，持有该方法的全部缓存条目
+     */
+    static class Policy {
+
+        private final Class<?> controllerType;
+        private final long ttlNanos;
+        // 参与缓存键的查询参数（已排序），为空表示全部参数
+        private final String[] keyParams;
+        private final String[] vary;
+        private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+        private volatile boolean retired;
+
+        Policy(Class<?> controllerType, PlatformCacheable cacheable) {
+            this.controllerType = controllerType;
+            this.ttlNanos = TimeUnit.SECONDS.toNanos(cacheable.ttl());
+            this.keyParams = Arrays.stream(cacheable.key()).filter(StringUtils::hasText).sorted().toArray(String[]::new);
+            this.vary = Arrays.stream(cacheable.vary()).filter(StringUtils::hasText).toArray(String[]::new);
+        }
+
+        boolean varies(String name) {
+            for (String v : vary) {
+                if (v.equalsIgnoreCase(name)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 缓存条目
+     */
+    private static class Entry {
+
+        final Policy policy;
+        final String key;
+        final BufferedResponse response;
+        final String etag;
+        // 策略未声明的 Vary 请求头 -> 生成该条目的请求中的取值
+        final Map<String, String> extraVary;
+        final long storedAt;
+        final long expiresAt;
+        volatile long lastAccess;
+
+        Entry(Policy policy, String key, BufferedResponse response, String etag, Map<String, String> extraVary,
+              long storedAt, long expiresAt) {
+            this.policy = policy;
+            this.key = key;
+            this.response = response;
+            this.etag = etag;
+            this.extraVary = extraVary;
+            this.storedAt = storedAt;
+            this.expiresAt = expiresAt;
+            this.lastAccess = storedAt;
+        }
+
+        boolean matchesVary(HttpServletRequest request) {
+            if (extraVary == null) {
+                return true;
+            }
+            for (Map.Entry<String, String> e : extraVary.entrySet()) {
+                if (!e.getValue().equals(RequestKeys.headerValue(request, e.getKey()))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        long size() {
+            return response.body.length + key.length();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.hxuanyu.funnytoolbox.plugin.registry;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.lang.reflect.Method;
+
+/**
+ * 单个插件（一个代次）的路由表
+ * 复用 RequestMappingHandlerMapping 的匹配逻辑（条件匹配、最佳匹配排序、405/415 判定、@CrossOrigin），
+ * 但只包含该插件的路由；不作为 Bean 注册、不扫描应用上下文。
+ * 路由在发布前全部注册完毕，发布后只读，插件禁用或切换代次时整表替换。
+ */
+final class PluginRouteTable extends RequestMappingHandlerMapping {
+
+    private final String pluginId;
+    private final long generation;
+    private final String apiPrefix;
+    private int routeCount;
+
+    PluginRouteTable(String pluginId, long generation, String apiPrefix) {
+        this.pluginId = pluginId;
+        this.generation = generation;
+        this.apiPrefix = apiPrefix;
+    }
+
+    void register(RequestMappingInfo mapping, Object handler, Method method) {
+        registerMapping(mapping, handler, method);
+        routeCount++;
+    }
+
+    /**
+     * 匹配请求，未命中返回 null；方法或媒体类型不匹配时抛出对应异常（与平台映射一致）
+     */
+    HandlerMethod lookup(HttpServletRequest request) throws Exception {
+        return getHandlerInternal(request);
+    }
+
+    /**
+     * 处理器上 @CrossOrigin 声明的跨域配置
+     */
+    CorsConfiguration corsConfigurationFor(Object handler, HttpServletRequest request) {
+        return getCorsConfiguration(handler, request);
+    }
+
+    String getPluginId() {
+        return pluginId;
+    }
+
+    long getGeneration() {
+        return generation;
+    }
+
+    String getApiPrefix() {
+        return apiPrefix;
+    }
+
+    int getRouteCount() {
+        return routeCount;
+    }
+}
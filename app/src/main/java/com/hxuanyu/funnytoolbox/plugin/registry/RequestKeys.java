@@ -0,0 +1,60 @@
+package com.hxuanyu.funnytoolbox.plugin.registry;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * 按请求生成规范化的键（响应缓存与请求合并共用）
+ */
+final class RequestKeys {
+
+    private RequestKeys() {
+    }
+
+    /**
+     * 请求路径 + 排序后的查询参数 + 指定请求头的取值；取值带长度前缀，避免拼接歧义
+     *
+     * @param params  参与的查询参数名（已排序），为空表示全部参数
+     * @param headers 参与的请求头名
+     */
+    static String of(HttpServletRequest request, String[] params, String[] headers) {
+        StringBuilder sb = new StringBuilder(request.getRequestURI());
+        Map<String, String[]> parameterMap = request.getParameterMap();
+        Collection<String> names = params.length > 0 ? Arrays.asList(params) : new TreeSet<>(parameterMap.keySet());
+        for (String name : names) {
+            String[] values = parameterMap.get(name);
+            if (values == null) {
+                continue;
+            }
+            for (String value : values) {
+                sb.append('&').append(name.length()).append(':').append(name)
+                        .append('=').append(value.length()).append(':').append(value);
+            }
+        }
+        for (String name : headers) {
+            String value = headerValue(request, name);
+            sb.append('\n').append(name).append('=').append(value.length()).append(':').append(value);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 请求头的全部取值（逗号连接），不存在时返回空串
+     */
+    static String headerValue(HttpServletRequest request, String name) {
+        Enumeration<String> values = request.getHeaders(name);
+        if (values == null || !values.hasMoreElements()) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(values.nextElement());
+        while (values.hasMoreElements()) {
+            sb.append(',').append(values.nextElement());
+        }
+        return sb.toString();
+    }
+}
@@ -1,117 +1,309 @@
 package com.hxuanyu.funnytoolbox.plugin.registry;
 
+import com.hxuanyu.funnytoolbox.plugin.metrics.PluginMetrics;
+import com.hxuanyu.toolbox.plugin.api.PlatformCacheable;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.aop.support.AopUtils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.MergedAnnotation;
+import org.springframework.core.annotation.MergedAnnotations;
+import org.springframework.core.annotation.MergedAnnotations.SearchStrategy;
+import org.springframework.core.annotation.RepeatableContainers;
 import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.ReflectionUtils;
-import org.springframework.web.bind.annotation.*;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
-import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
 
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 动态路由注册器
+ * 只处理控制器自身声明的处理器方法（排除 Object 方法、桥接与合成方法），每个方法一次 MergedAnnotations 解析，
+ * 与 Spring 一致地合并类级与方法级 @RequestMapping（路径、请求方法、params、headers、consumes、produces）。
+ * 解析结果按插件包内容哈希缓存，包未变化时重载只需按签名定位方法，不再重复注解解析。
  */
 @Component
 @Slf4j
 public class RouteRegistry {
 
     @Autowired
-    private RequestMappingHandlerMapping handlerMapping;
+    private PluginDispatchHandlerMapping dispatchMapping;
+
+    @Autowired
+    private PluginMetrics pluginMetrics;
+
+    @Autowired
+    private PluginResponseCache responseCache;
+
+    @Autowired
+    private PluginRequestCoalescer requestCoalescer;
+
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    // 代次 -> 路由表（含已注册、尚未生效的代次）
+    private final Map<Long, PluginRouteTable> tables = new ConcurrentHashMap<>();
+
+    // pluginId -> 路由元数据缓存（仅保留最近一个包版本）
+    private final Map<String, RouteMetadataCache> metadataCaches = new ConcurrentHashMap<>();
 
     /**
      * 注册控制器的所有路由
+     * 路由注册到插件该代次的路由表，需调用 {@link #activateGeneration} 后才会参与匹配。
+     *
+     * @param coalesce    启用请求合并的路由模式（相对 apiPrefix），可为 null
+     * @param packageHash 插件包内容哈希，用于缓存路由元数据，可为 null（不缓存）
      */
-    public List<Object> registerController(String apiPrefix, Object controller) {
+    public List<Object> registerController(String pluginId, long generation, String apiPrefix, List<String> coalesce,
+                                           String packageHash, Object controller) {
         List<Object> mappings = new ArrayList<>();
+        PluginRouteTable table = tables.computeIfAbsent(generation,
+                g -> dispatchMapping.createTable(pluginId, g, apiPrefix));
+        // 使用路由表规范化后的前缀
+        String prefix = table.getApiPrefix();
 
-        Method[] methods = ReflectionUtils.getAllDeclaredMethods(controller.getClass());
+        Class<?> userClass = ClassUtils.getUserClass(controller);
+        for (Map.Entry<Method, MethodRoute> entry : resolveRoutes(pluginId, packageHash, prefix, userClass).entrySet()) {
+            Method method = AopUtils.selectInvocableMethod(entry.getKey(), controller.getClass());
+            MethodRoute route = entry.getValue();
+            RequestMappingInfo mappingInfo = route.mappingInfo();
 
-        for (Method method : methods) {
-            RequestMappingInfo mappingInfo = createMappingInfo(apiPrefix, method);
+            table.register(mappingInfo, controller, method);
+            mappings.add(mappingInfo);
+            pluginMetrics.registerRoute(pluginId, mappingInfo);
+            registerCache(pluginId, controller, method, mappingInfo, route.cacheable());
+            registerCoalescing(pluginId, controller, method, mappingInfo, prefix, coalesce);
 
-            if (mappingInfo != null) {
-                handlerMapping.registerMapping(mappingInfo, controller, method);
-                mappings.add(mappingInfo);
+            log.info("Registered route: {} -> {}.{}",
+                    mappingInfo.getPatternValues(),
+                    userClass.getSimpleName(),
+                    method.getName());
+        }
+
+        return mappings;
+    }
+
+    /**
+     * 登记 GET 路由上声明的响应缓存
+     */
+    private void registerCache(String pluginId, Object controller, Method method, RequestMappingInfo mappingInfo,
+                               PlatformCacheable cacheable) {
+        if (cacheable == null) {
+            return;
+        }
+        Set<RequestMethod> httpMethods = mappingInfo.getMethodsCondition().getMethods();
+        if (!httpMethods.isEmpty() && !httpMethods.contains(RequestMethod.GET)) {
+            log.warn("@PlatformCacheable ignored on non-GET route {}", mappingInfo.getPatternValues());
+            return;
+        }
+        responseCache.register(pluginId, controller, method, cacheable);
+    }
 
-                log.info("Registered route: {} -> {}.{}",
-                        mappingInfo.getPatternValues(),
-                        controller.getClass().getSimpleName(),
-                        method.getName());
+    /**
+     * 登记 plugin.yml api.coalesce 匹配的 GET 路由的请求合并
+     */
+    private void registerCoalescing(String pluginId, Object controller, Method method, RequestMappingInfo mappingInfo,
+                                    String apiPrefix, List<String> coalesce) {
+        if (coalesce == null || coalesce.isEmpty()) {
+            return;
+        }
+        Set<RequestMethod> httpMethods = mappingInfo.getMethodsCondition().getMethods();
+        if (!httpMethods.isEmpty() && !httpMethods.contains(RequestMethod.GET)) {
+            return;
+        }
+        for (String pattern : mappingInfo.getPatternValues()) {
+            String route = pattern.startsWith(apiPrefix) ? pattern.substring(apiPrefix.length()) : pattern;
+            for (String declared : coalesce) {
+                if (PATH_MATCHER.match(declared.startsWith("/") ? declared : "/" + declared, route)) {
+                    requestCoalescer.register(pluginId, controller, method);
+                    return;
+                }
             }
         }
+    }
 
-        return mappings;
+    /**
+     * 注销控制器的响应缓存与请求合并（注销路由时调用）
+     */
+    public void unregisterCache(Object controller) {
+        responseCache.unbind(controller);
+        requestCoalescer.unbind(controller);
+    }
+
+    /**
+     * 切换插件生效的路由代次：发布该代次的路由表，整表替换旧代次（原子操作）
+     * 该代次没有任何路由时移除插件的路由。
+     */
+    public void activateGeneration(String pluginId, long generation) {
+        PluginRouteTable table = tables.get(generation);
+        dispatchMapping.publish(pluginId, table);
+        log.info("Activated routes of plugin {}: generation {} ({} routes)",
+                pluginId, generation, table != null ? table.getRouteCount() : 0);
     }
 
     /**
-     * 注销路由
+     * 注销插件某一代次的全部路由（整表撤下）
      */
-    public void unregisterMapping(Object mapping) {
-        if (mapping instanceof RequestMappingInfo) {
-            handlerMapping.unregisterMapping((RequestMappingInfo) mapping);
-            log.info("Unregistered route: {}", ((RequestMappingInfo) mapping).getPatternValues());
+    public void unregisterRoutes(String pluginId, long generation) {
+        PluginRouteTable table = tables.remove(generation);
+        if (table != null) {
+            dispatchMapping.unpublish(table);
+            log.info("Unregistered {} routes of plugin {} (generation {})", table.getRouteCount(), pluginId, generation);
         }
     }
 
     /**
-     * 创建路由映射信息
+     * 移除插件的全部路由表（插件卸载后调用）
      */
-    private RequestMappingInfo createMappingInfo(String apiPrefix, Method method) {
-        // 检查各种映射注解
-        // 优先使用具体的 HTTP 方法注解，避免由于 @GetMapping 等通过元注解继承的 @RequestMapping 被提前匹配
-        GetMapping getMapping = AnnotationUtils.findAnnotation(method, GetMapping.class);
-        PostMapping postMapping = AnnotationUtils.findAnnotation(method, PostMapping.class);
-        PutMapping putMapping = AnnotationUtils.findAnnotation(method, PutMapping.class);
-        DeleteMapping deleteMapping = AnnotationUtils.findAnnotation(method, DeleteMapping.class);
-        PatchMapping patchMapping = AnnotationUtils.findAnnotation(method, PatchMapping.class);
-        RequestMapping requestMapping = AnnotationUtils.findAnnotation(method, RequestMapping.class);
-
-        String[] paths = null;
-        RequestMethod[] methods = null;
-
-        // 具体注解优先，最后再回退到 RequestMapping
-        if (getMapping != null) {
-            paths = getMapping.value().length > 0 ? getMapping.value() : getMapping.path();
-            methods = new RequestMethod[]{RequestMethod.GET};
-        } else if (postMapping != null) {
-            paths = postMapping.value().length > 0 ? postMapping.value() : postMapping.path();
-            methods = new RequestMethod[]{RequestMethod.POST};
-        } else if (putMapping != null) {
-            paths = putMapping.value().length > 0 ? putMapping.value() : putMapping.path();
-            methods = new RequestMethod[]{RequestMethod.PUT};
-        } else if (deleteMapping != null) {
-            paths = deleteMapping.value().length > 0 ? deleteMapping.value() : deleteMapping.path();
-            methods = new RequestMethod[]{RequestMethod.DELETE};
-        } else if (patchMapping != null) {
-            paths = patchMapping.value().length > 0 ? patchMapping.value() : patchMapping.path();
-            methods = new RequestMethod[]{RequestMethod.PATCH};
-        } else if (requestMapping != null) {
-            paths = requestMapping.value().length > 0 ? requestMapping.value() : requestMapping.path();
-            methods = requestMapping.method();
+    public void removePlugin(String pluginId) {
+        tables.values().removeIf(table -> {
+            if (!table.getPluginId().equals(pluginId)) {
+                return false;
+            }
+            dispatchMapping.unpublish(table);
+            return true;
+        });
+    }
+
+    /**
+     * 清除插件的路由元数据缓存（插件卸载后调用，重载时保留）
+     */
+    public void evictRouteMetadata(String pluginId) {
+        metadataCaches.remove(pluginId);
+    }
+
+    /**
+     * 控制器的处理器方法及其路由：包哈希与缓存一致时按签名定位方法，否则解析注解并写入缓存
+     */
+    private Map<Method, MethodRoute> resolveRoutes(String pluginId, String packageHash, String apiPrefix, Class<?> userClass) {
+        if (packageHash == null) {
+            return extractRoutes(apiPrefix, userClass);
+        }
+        RouteMetadataCache cache = metadataCaches.compute(pluginId,
+                (id, current) -> current != null && current.packageHash.equals(packageHash)
+                        ? current : new RouteMetadataCache(packageHash));
+        String key = userClass.getName() + "@" + apiPrefix;
+        List<MethodRoute> cached = cache.routes.get(key);
+        if (cached != null) {
+            Map<Method, MethodRoute> resolved = locate(userClass, cached);
+            if (resolved != null) {
+                return resolved;
+            }
+        }
+        Map<Method, MethodRoute> routes = extractRoutes(apiPrefix, userClass);
+        cache.routes.put(key, List.copyOf(routes.values()));
+        return routes;
+    }
+
+    /**
+     * 解析控制器声明的处理器方法（一次性读取类级映射，每个方法一次 MergedAnnotations 解析）
+     */
+    private Map<Method, MethodRoute> extractRoutes(String apiPrefix, Class<?> userClass) {
+        RequestMappingInfo.BuilderConfiguration config = dispatchMapping.getBuilderConfiguration();
+        MergedAnnotation<RequestMapping> typeMapping = MergedAnnotations
+                .from(userClass, SearchStrategy.TYPE_HIERARCHY, RepeatableContainers.none())
+                .get(RequestMapping.class);
+        RequestMappingInfo prefixInfo = RequestMappingInfo.paths(apiPrefix).options(config).build();
+        RequestMappingInfo baseInfo = typeMapping.isPresent()
+                ? prefixInfo.combine(createMappingInfo(typeMapping, config)) : prefixInfo;
+
+        return MethodIntrospector.selectMethods(userClass, (MethodIntrospector.MetadataLookup<MethodRoute>) method -> {
+            MergedAnnotations annotations = MergedAnnotations
+                    .from(method, SearchStrategy.TYPE_HIERARCHY, RepeatableContainers.none());
+            MergedAnnotation<RequestMapping> mapping = annotations.get(RequestMapping.class);
+            if (!mapping.isPresent()) {
+                return null;
+            }
+            MergedAnnotation<PlatformCacheable> cacheable = annotations.get(PlatformCacheable.class);
+            return new MethodRoute(method.getDeclaringClass().getName(), method.getName(), parameterTypeNames(method),
+                    baseInfo.combine(createMappingInfo(mapping, config)),
+                    cacheable.isPresent() ? cacheable.synthesize() : null);
+        });
+    }
+
+    /**
+     * 按缓存的签名定位处理器方法，任一方法找不到时返回 null（重新解析）
+     */
+    private Map<Method, MethodRoute> locate(Class<?> userClass, List<MethodRoute> routes) {
+        Map<Method, MethodRoute> resolved = new LinkedHashMap<>();
+        for (MethodRoute route : routes) {
+            Method method = findMethod(userClass, route);
+            if (method == null) {
+                return null;
+            }
+            resolved.put(method, route);
         }
+        return resolved;
+    }
 
-        if (paths == null || paths.length == 0) {
-            return null;
+    private Method findMethod(Class<?> userClass, MethodRoute route) {
+        List<Class<?>> candidates = new ArrayList<>();
+        for (Class<?> c = userClass; c != null && c != Object.class; c = c.getSuperclass()) {
+            candidates.add(c);
         }
+        candidates.addAll(ClassUtils.getAllInterfacesForClassAsSet(userClass));
+        for (Class<?> c : candidates) {
+            if (!c.getName().equals(route.declaringClass())) {
+                continue;
+            }
+            for (Method method : ReflectionUtils.getDeclaredMethods(c)) {
+                if (method.getName().equals(route.methodName())
+                        && Arrays.equals(parameterTypeNames(method), route.parameterTypes())) {
+                    return method;
+                }
+            }
+        }
+        return null;
+    }
 
-        // 添加 API 前缀
-        String[] fullPaths = Arrays.stream(paths)
-                .map(path -> {
-                    path = path.startsWith("/") ? path : "/" + path;
-                    return apiPrefix + path;
-                })
-                .toArray(String[]::new);
+    private static String[] parameterTypeNames(Method method) {
+        return Arrays.stream(method.getParameterTypes()).map(Class::getName).toArray(String[]::new);
+    }
 
-        // 构建 RequestMappingInfo
+    /**
+     * 由 @RequestMapping（含 @GetMapping 等组合注解合并后的属性）创建映射信息，与 Spring 注解映射一致
+     */
+    private static RequestMappingInfo createMappingInfo(MergedAnnotation<RequestMapping> mapping,
+                                                        RequestMappingInfo.BuilderConfiguration config) {
         return RequestMappingInfo
-                .paths(fullPaths)
-                .methods(methods)
+                .paths(mapping.getStringArray("path"))
+                .methods(mapping.getEnumArray("method", RequestMethod.class))
+                .params(mapping.getStringArray("params"))
+                .headers(mapping.getStringArray("headers"))
+                .consumes(mapping.getStringArray("consumes"))
+                .produces(mapping.getStringArray("produces"))
+                .mappingName(mapping.getString("name"))
+                .options(config)
                 .build();
     }
-}
\ No newline at end of file
+
+    /**
+     * 处理器方法的路由元数据（不持有反射对象，可跨类加载器复用）
+     */
+    private record MethodRoute(String declaringClass, String methodName, String[] parameterTypes,
+                               RequestMappingInfo mappingInfo, PlatformCacheable cacheable) {
+    }
+
+    /**
+     * 插件某一包版本的路由元数据：控制器类名@API前缀 -> 路由列表
+     */
+    private static final class RouteMetadataCache {
+
+        private final String packageHash;
+        private final Map<String, List<MethodRoute>> routes = new ConcurrentHashMap<>();
+
+        private RouteMetadataCache(String packageHash) {
+            this.packageHash = packageHash;
+        }
+    }
+}
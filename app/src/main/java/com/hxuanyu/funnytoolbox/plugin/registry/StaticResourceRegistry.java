@@ -6,21 +6,33 @@ import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Component;
 import org.springframework.core.io.UrlResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.util.UriUtils;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import org.springframework.web.servlet.resource.ResourceResolver;
 import org.springframework.web.servlet.resource.ResourceResolverChain;
 
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
 // no direct use of JarURLConnection static methods to keep compatibility across JDKs
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 import jakarta.annotation.PostConstruct;
 
 /**
@@ -30,15 +42,32 @@ import jakarta.annotation.PostConstruct;
 @Slf4j
 public class StaticResourceRegistry implements WebMvcConfigurer {
 
+    /**
+     * 内存映射 ZIP 资源位置前缀，格式：mapped-zip:{ZIP 绝对路径}!{basePath}
+     */
+    public static final String MAPPED_ZIP_PREFIX = "mapped-zip:";
+
+    private static final String CACHE_CONTROL_IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final String CACHE_CONTROL_REVALIDATE = "no-cache";
+
     @Autowired
     private ResourceLoader resourceLoader;
 
+    @Autowired
+    private AssetByteCache byteCache;
+
     // pluginId -> base resource location (e.g. jar:file:/path/to/plugin.jar!/static/)
     private final Map<String, String> pluginResourceLocations = new ConcurrentHashMap<>();
 
     // 兼容对外查看：保存每个插件的资源位置列表（目前仅存放一个 resourceLocation）
     private final Map<String, List<String>> resourceMappings = new ConcurrentHashMap<>();
 
+    // 资源索引："{pluginId}/{相对路径}" -> 资源项；目录访问（含插件根路径）直接映射到其 index.html
+    private final Map<String, PluginAsset> assets = new ConcurrentHashMap<>();
+
+    // pluginId -> 该插件在资源索引中的全部键
+    private final Map<String, Set<String>> assetKeys = new ConcurrentHashMap<>();
+
     /**
      * 注册静态资源映射
      *
@@ -47,7 +76,16 @@ public class StaticResourceRegistry implements WebMvcConfigurer {
      * @param resourceLocation 资源位置，例如: jar:file:plugins/plugin.jar!/static/
      */
     public void registerResources(String pluginId, String urlPath, String resourceLocation) {
-        // 存储插件资源基础路径；后续通过自定义 ResourceResolver 动态解析
+        // 本地缓存目录：预先建立资源索引，请求时不再访问文件系统；先放入新索引再移除旧键，替换期间不出现空档
+        Map<String, PluginAsset> index = buildAssetIndex(pluginId, resourceLocation);
+        assets.putAll(index);
+        Set<String> previous = index.isEmpty() ? assetKeys.remove(pluginId) : assetKeys.put(pluginId, Set.copyOf(index.keySet()));
+        if (previous != null) {
+            previous.stream().filter(k -> !index.containsKey(k)).forEach(assets::remove);
+            byteCache.invalidate(pluginId);
+        }
+
+        // 存储插件资源基础路径；后续通过自定义 ResourceResolver 动态解析（重复注册即原子替换）
         pluginResourceLocations.put(pluginId, normalizeBase(resourceLocation));
 
         // 保存可视化信息（用于查询/调试）
@@ -56,17 +94,54 @@ public class StaticResourceRegistry implements WebMvcConfigurer {
         log.info("Registered static resources mapping for plugin [{}]: {} -> {}", pluginId, urlPath, resourceLocation);
     }
 
+    /**
+     * 校验 ZIP 包可按映射模式提供（能够解析中央目录且不含 ZIP64、加密或不支持的压缩方式）
+     *
+     * @throws IOException 无法映射，调用方应改为解压
+     */
+    public void validateMappedZip(String packagePath) throws IOException {
+        MappedZipArchive.open(Paths.get(packagePath));
+    }
+
     /**
      * 注销静态资源
      */
     public void unregisterResources(String pluginId) {
         resourceMappings.remove(pluginId);
         String removed = pluginResourceLocations.remove(pluginId);
+        Set<String> keys = assetKeys.remove(pluginId);
+        if (keys != null) {
+            keys.forEach(assets::remove);
+        }
+        byteCache.invalidate(pluginId);
         if (removed != null) {
             log.info("Unregistered static resources for plugin: {}", pluginId);
         }
     }
 
+    /**
+     * 直接输出已建立索引的插件静态资源（零拷贝，支持 Range），由过滤器在进入 DispatcherServlet 前调用。
+     * 仅处理不会载入内存缓存的大文件与 Range 请求，其余返回 false，交由常规资源处理器。
+     *
+     * @param path 去除上下文路径后的请求路径，形如 /plugins/{pluginId}/**
+     */
+    public boolean serveDirect(String path, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        PluginAsset asset = assets.get(decodePath(path.substring("/plugins/".length())));
+        if (asset == null) {
+            return false;
+        }
+        asset = asset.select(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        // 映射 ZIP 条目没有独立文件，交由常规资源处理器
+        if (asset.getPath() == null) {
+            return false;
+        }
+        if (request.getHeader(HttpHeaders.RANGE) == null && byteCache.isCacheable(asset.contentLength())) {
+            return false;
+        }
+        PluginAssetTransfer.write(asset, request, response);
+        return true;
+    }
+
     /**
      * 获取所有资源映射
      */
@@ -76,13 +151,16 @@ public class StaticResourceRegistry implements WebMvcConfigurer {
 
     /**
      * 统一注册 /plugins/** 静态资源处理，但实际资源定位由自定义解析器根据 pluginId 动态决定。
+     * 插件资源位置会在启用/禁用/重载时变化，关闭资源链缓存，避免命中已失效的资源。
+     * 已建立索引的资源使用解压时计算的强 ETag，If-None-Match 命中时直接返回 304。
      */
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         registry.addResourceHandler("/plugins/**")
                 // 添加占位 location（必须提供至少一个），实际由 resolver 完成解析
                 .addResourceLocations("classpath:/")
-                .resourceChain(true)
+                .etagGenerator(resource -> resource instanceof PluginAsset asset ? asset.getEtag() : null)
+                .resourceChain(false)
                 .addResolver(new PluginResourceResolver());
     }
 
@@ -99,11 +177,156 @@ public class StaticResourceRegistry implements WebMvcConfigurer {
         }
     }
 
+    /**
+     * 建立静态资源索引：本地缓存目录（file:）或内存映射 ZIP 包（mapped-zip:）；其他位置（JAR 内访问）返回空索引
+     */
+    private Map<String, PluginAsset> buildAssetIndex(String pluginId, String resourceLocation) {
+        // 相对路径 -> 资源项，相对路径 -> 内容哈希
+        Map<String, PluginAsset> files = new HashMap<>();
+        Map<String, String> hashes = new HashMap<>();
+        try {
+            if (resourceLocation != null && resourceLocation.startsWith("file:")) {
+                Path root = Paths.get(resourceLocation.substring("file:".length())).toAbsolutePath().normalize();
+                indexDirectory(pluginId, root, files);
+                loadEtags(root).forEach((k, v) -> hashes.put((String) k, (String) v));
+            } else if (resourceLocation != null && resourceLocation.startsWith(MAPPED_ZIP_PREFIX)) {
+                indexMappedZip(pluginId, resourceLocation, files, hashes);
+            }
+        } catch (IOException e) {
+            log.error("Failed to index static resources of plugin {} at {}: {}", pluginId, resourceLocation, e.getMessage());
+            files.clear();
+        }
+
+        Map<String, PluginAsset> index = new HashMap<>();
+        for (Map.Entry<String, PluginAsset> e : files.entrySet()) {
+            String relative = e.getKey();
+            PluginAsset asset = e.getValue();
+            asset.setContentHash(hashes.get(relative));
+            // 关联预压缩变体：{path}.gz 与 {path} 同时存在时，按请求的 Accept-Encoding 选择
+            PluginAsset gz = files.get(relative + ".gz");
+            if (gz != null) {
+                asset.attachGzip(gz).setContentHash(hashes.get(relative + ".gz"));
+            }
+            asset.applyCachePolicy(cacheControlFor(asset.getFilename()));
+
+            index.put(pluginId + "/" + relative, asset);
+            // 目录访问（含插件根路径）映射到其 index.html
+            if (asset.getFilename().equals("index.html")) {
+                String dir = relative.substring(0, relative.length() - "index.html".length());
+                index.put(pluginId + "/" + dir, asset);
+                if (dir.isEmpty()) {
+                    index.put(pluginId, asset);
+                }
+            }
+        }
+        return index;
+    }
+
+    private void indexDirectory(String pluginId, Path root, Map<String, PluginAsset> files) throws IOException {
+        try (Stream<Path> stream = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) stream::iterator) {
+                String relative = root.relativize(file).toString().replace('\\', '/');
+                // 缓存清单不对外提供
+                if (relative.equals(".manifest") || relative.equals(".etags")) {
+                    continue;
+                }
+                BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                if (attrs.isRegularFile()) {
+                    files.put(relative, new PluginAsset(pluginId, file, attrs.size(), attrs.lastModifiedTime().toMillis(), byteCache));
+                }
+            }
+        }
+    }
+
+    /**
+     * 为内存映射 ZIP 包中 basePath 下的条目建立索引，以 CRC32 与大小作为内容哈希
+     */
+    private void indexMappedZip(String pluginId, String resourceLocation, Map<String, PluginAsset> files,
+                                Map<String, String> hashes) throws IOException {
+        String spec = resourceLocation.substring(MAPPED_ZIP_PREFIX.length());
+        int sep = spec.lastIndexOf('!');
+        String base = normalizeBase(spec.substring(sep + 1));
+        if (base.startsWith("/")) {
+            base = base.substring(1);
+        }
+        MappedZipArchive archive = MappedZipArchive.open(Paths.get(spec.substring(0, sep)));
+        for (MappedZipArchive.Entry entry : archive.getEntries()) {
+            String name = entry.getName();
+            if (entry.isDirectory() || !name.startsWith(base)) {
+                continue;
+            }
+            String relative = name.substring(base.length());
+            if (relative.isEmpty() || relative.contains("..")) {
+                continue;
+            }
+            files.put(relative, new PluginAsset(pluginId, entry, byteCache));
+            hashes.put(relative, String.format("%08x-%x", entry.getCrc(), entry.getSize()));
+        }
+        log.info("Mapped {} static entries of plugin {} from {}", files.size(), pluginId, archive.getPath());
+    }
+
+    /**
+     * 读取解压时计算的内容哈希（.etags），不存在时返回空集合（仅使用 Last-Modified 协商）
+     */
+    private Properties loadEtags(Path root) {
+        Properties etags = new Properties();
+        Path file = root.resolve(".etags");
+        if (Files.isRegularFile(file)) {
+            try (InputStream is = Files.newInputStream(file)) {
+                etags.load(is);
+            } catch (IOException e) {
+                log.warn("Failed to read static resource etags {}: {}", file, e.getMessage());
+            }
+        }
+        return etags;
+    }
+
+    /**
+     * 缓存策略：文件名带内容哈希（如 index-Dug2NDzz.js）的资源长期缓存且不再验证；入口页面及其他资源每次协商验证
+     */
+    static String cacheControlFor(String filename) {
+        if (filename == null || filename.endsWith(".html") || filename.endsWith(".htm")) {
+            return CACHE_CONTROL_REVALIDATE;
+        }
+        return isHashedName(filename) ? CACHE_CONTROL_IMMUTABLE : CACHE_CONTROL_REVALIDATE;
+    }
+
+    /**
+     * 判断文件名是否带构建工具生成的内容哈希：扩展名前以 '-' 或 '.' 分隔的最后一段，
+     * 长度不少于 8、仅含字母数字及 '_'，且包含数字或大写字母（排除 vendor-helpers.js 这类普通单词）
+     */
+    static boolean isHashedName(String filename) {
+        int ext = filename.lastIndexOf('.');
+        if (ext <= 0) {
+            return false;
+        }
+        int start = Math.max(filename.lastIndexOf('-', ext - 1), filename.lastIndexOf('.', ext - 1)) + 1;
+        if (start <= 0 || ext - start < 8) {
+            return false;
+        }
+        boolean digitOrUpper = false;
+        for (int i = start; i < ext; i++) {
+            char c = filename.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_') {
+                return false;
+            }
+            digitOrUpper |= Character.isDigit(c) || Character.isUpperCase(c);
+        }
+        return digitOrUpper;
+    }
+
     private String normalizeBase(String base) {
         if (base == null) return null;
         return base.endsWith("/") ? base : base + "/";
     }
 
+    /**
+     * 解码请求路径中的百分号编码（资源索引以解码后的条目名为键）
+     */
+    private static String decodePath(String path) {
+        return path.indexOf('%') >= 0 ? UriUtils.decode(path, StandardCharsets.UTF_8) : path;
+    }
+
     /**
      * 自定义资源解析器：根据 URL /plugins/{pluginId}/** 动态从对应插件 JAR 的 static 目录解析资源
      */
@@ -117,6 +340,14 @@ public class StaticResourceRegistry implements WebMvcConfigurer {
             // 期望 requestPath 形如：plugins/{pluginId}/path/inside 或 {pluginId}/path/inside
             if (requestPath == null) return null;
 
+            String acceptEncoding = request != null ? request.getHeader(HttpHeaders.ACCEPT_ENCODING) : null;
+
+            // 快速路径：直接命中资源索引（索引键为解码后的路径）
+            PluginAsset asset = assets.get(decodePath(requestPath));
+            if (asset != null) {
+                return asset.select(acceptEncoding);
+            }
+
             String path = requestPath.startsWith("/") ? requestPath.substring(1) : requestPath;
             if (path.startsWith("plugins/")) {
                 path = path.substring("plugins/".length());
@@ -139,6 +370,11 @@ public class StaticResourceRegistry implements WebMvcConfigurer {
             if (base == null) {
                 return null;
             }
+            // 已建立索引的插件未命中即不存在，无需再访问文件系统
+            if (assetKeys.containsKey(pluginId)) {
+                PluginAsset indexed = assets.get(pluginId + "/" + decodePath(innerPath));
+                return indexed != null ? indexed.select(acceptEncoding) : null;
+            }
 
             // 简单防护，避免路径穿越
             if (innerPath.contains("..")) {
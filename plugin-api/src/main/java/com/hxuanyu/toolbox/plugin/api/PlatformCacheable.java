@@ -0,0 +1,36 @@
+package com.hxuanyu.toolbox.plugin.api;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 平台响应缓存
+ * 标注在插件控制器的 GET 方法上，平台注册路由时识别该注解，由平台在内存中缓存方法的响应（状态码 200 的响应体与响应头），
+ * 有效期内相同请求直接返回缓存内容，不再调用方法；支持 If-None-Match 条件请求（返回 304）。
+ * 插件禁用、重载或卸载时缓存自动清除。
+ * 注意：缓存在所有客户端间共享，响应因用户而异时需通过 {@link #vary()} 声明区分依据（如 Cookie、Authorization），
+ * 设置了 Set-Cookie 或 Cache-Control: no-store / private 的响应不会被缓存。
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface PlatformCacheable {
+
+    /**
+     * 缓存有效期（秒），<= 0 表示不缓存
+     */
+    long ttl() default 60;
+
+    /**
+     * 参与缓存键的查询参数名，为空时使用全部查询参数（与参数顺序无关）
+     */
+    String[] key() default {};
+
+    /**
+     * 响应随之变化的请求头，其取值参与缓存键并写入响应的 Vary 头
+     */
+    String[] vary() default {};
+}